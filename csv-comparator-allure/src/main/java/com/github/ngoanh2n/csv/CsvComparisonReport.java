@@ -29,7 +29,7 @@ import java.util.UUID;
  * <b>System Property</b>
  * <ul>
  *     <li>{@code ngoanh2n.csv.includeSource}<br>
- *         Indicate which attaches CSV sources to Allure report. Default to {@code true}.
+ *         Indicate which attaches CSV sources to Allure report, except sources are read only once. Default to {@code true}.
  *     </li>
  *     <li>{@code ngoanh2n.csv.includeSettings}<br>
  *         Indicate which attaches CSV parser settings to Allure report. Default to {@code true}.
@@ -66,13 +66,13 @@ public class CsvComparisonReport implements CsvComparisonVisitor {
      * {@inheritDoc}
      */
     @Override
-    public void comparisonStarted(CsvComparisonOptions options, File exp, File act) {
+    public void comparisonStarted(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
         uuid = UUID.randomUUID().toString();
         lifecycle = Allure.getLifecycle();
 
         List<Parameter> parameters = new ArrayList<>();
-        parameters.add(ResultsUtils.createParameter(allureDesc.getProperty("expFile"), Commons.getRelative(exp)));
-        parameters.add(ResultsUtils.createParameter(allureDesc.getProperty("actFile"), Commons.getRelative(act)));
+        parameters.add(ResultsUtils.createParameter(allureDesc.getProperty("expFile"), getName(exp)));
+        parameters.add(ResultsUtils.createParameter(allureDesc.getProperty("actFile"), getName(act)));
 
         StepResult result = new StepResult().setName(allureDesc.getProperty("subject")).setParameters(parameters);
         lifecycle.startStep(uuid, result);
@@ -85,30 +85,68 @@ public class CsvComparisonReport implements CsvComparisonVisitor {
      * {@inheritDoc}
      */
     @Override
-    public void comparisonFinished(CsvComparisonOptions options, File exp, File act, CsvComparisonResult result) {
-        if (result.hasDiff()) {
-            lifecycle.updateStep(uuid, sr -> sr.setStatus(Status.FAILED));
-        } else {
-            lifecycle.updateStep(uuid, sr -> sr.setStatus(Status.PASSED));
+    public void comparisonFinished(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonResult result) {
+        stopStep(result.hasDiff() ? Status.FAILED : Status.PASSED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean visitsKeptRows() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void comparisonCancelled(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        stopStep(Status.SKIPPED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void comparisonFailed(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, Throwable error) {
+        stopStep(Status.BROKEN);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private void stopStep(Status status) {
+        if (uuid == null) {
+            // Step wasn't started, or it was already stopped
+            return;
         }
+        lifecycle.updateStep(uuid, sr -> sr.setStatus(status));
         lifecycle.stopStep(uuid);
+        uuid = null;
     }
 
-    //-------------------------------------------------------------------------------//
+    private static String getName(CsvComparisonSource source) {
+        File file = source.getFile();
+        return file == null ? source.getName() : Commons.getRelative(file);
+    }
 
-    private void attachSource(CsvComparisonOptions options, File exp, File act) {
+    private void attachSource(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
         if (includeSource.getValue()) {
             attachSource(options, exp, allureDesc.getProperty("expCsv"));
             attachSource(options, act, allureDesc.getProperty("actCsv"));
         }
     }
 
-    private void attachSource(CsvComparisonOptions options, File file, String fileDesc) {
+    private void attachSource(CsvComparisonOptions options, CsvComparisonSource source, String fileDesc) {
+        if (!source.isRepeatable()) {
+            // Source is read only once by comparison
+            return;
+        }
         ByteArrayOutputStream byteOS = new ByteArrayOutputStream();
         DataOutputStream dataOS = new DataOutputStream(byteOS);
 
-        Charset charset = CsvSource.getCharset(options, file);
-        List<String[]> rows = CsvSource.parse(options, file, true).getRows();
+        Charset charset = CsvSource.getCharset(options, source);
+        List<String[]> rows = CsvSource.parse(options, source, true).getRows();
 
         try {
             for (String[] row : rows) {
@@ -123,7 +161,7 @@ public class CsvComparisonReport implements CsvComparisonVisitor {
                 dataOS.write("\r\n".getBytes(charset));
             }
         } catch (IOException e) {
-            String msg = String.format("Write %s to OutputStream", Commons.getRelative(file));
+            String msg = String.format("Write %s to OutputStream", getName(source));
             log.error(msg);
             throw new RuntimeError(msg, e);
         } finally {
@@ -137,7 +175,7 @@ public class CsvComparisonReport implements CsvComparisonVisitor {
         lifecycle.addAttachment(fileDesc, "text/csv", "", byteOS.toByteArray());
     }
 
-    private void attachSettings(CsvComparisonOptions options, File exp) {
+    private void attachSettings(CsvComparisonOptions options, CsvComparisonSource exp) {
         if (includeSettings.getValue()) {
             Charset charset = CsvSource.getCharset(options, exp);
             byte[] bytes = options.parserSettings().toString().getBytes(charset);
@@ -0,0 +1,22 @@
+package com.github.ngoanh2n.csv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measure end-to-end comparison of 2 CSV files, without output files.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public class CsvComparatorBenchmark {
+    @Benchmark
+    public CsvComparisonResult compare(CsvDataset dataset) {
+        return CsvComparator.compare(dataset.exp, dataset.act, dataset.options);
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.ngoanh2n.csv;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measure writing rows to output files by {@link CsvComparisonOutput}.<br>
+ * Rows are delivered in batches of {@link #BATCH_SIZE} like {@link CsvComparator} does for {@link CsvComparisonOutput#batchRows()}.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public class CsvComparisonOutputBenchmark {
+    static final int BATCH_SIZE = 1024;
+
+    @Benchmark
+    public CsvComparisonOutput write(Rows rows) {
+        CsvComparisonOutput output = new CsvComparisonOutput();
+        CsvComparisonSource exp = CsvComparisonSource.of(rows.dataset.exp);
+        CsvComparisonSource act = CsvComparisonSource.of(rows.dataset.act);
+        output.comparisonStarted(rows.options, exp, act);
+
+        for (String[][] batch : rows.kept) {
+            output.rowsKept(rows.options, rows.headers, batch, batch.length);
+        }
+        for (String[][] batch : rows.modified) {
+            output.rowsModified(rows.options, rows.headers, batch, rows.diffs, batch.length);
+        }
+        for (String[][] batch : rows.deleted) {
+            output.rowsDeleted(rows.options, rows.headers, batch, batch.length);
+        }
+        for (String[][] batch : rows.inserted) {
+            output.rowsInserted(rows.options, rows.headers, batch, batch.length);
+        }
+        output.comparisonFinished(rows.options, exp, act, null);
+        return output;
+    }
+
+    //===============================================================================//
+
+    @State(Scope.Benchmark)
+    public static class Rows {
+        CsvDataset dataset;
+        CsvComparisonOptions options;
+        Path outputs;
+        String[] headers;
+        CellDiffs[] diffs;
+        List<String[][]> kept;
+        List<String[][]> modified;
+        List<String[][]> deleted;
+        List<String[][]> inserted;
+
+        @Setup(Level.Trial)
+        public void parse(CsvDataset dataset) {
+            this.dataset = dataset;
+            this.outputs = dataset.dir.resolve("outputs");
+            this.options = CsvComparisonOptions
+                    .builder()
+                    .charset(dataset.options.charset())
+                    .selectColumnId("id")
+                    .resultOptions(CsvComparisonResultOptions.builder().location(outputs).build())
+                    .build();
+            this.diffs = new CellDiffs[BATCH_SIZE];
+            Arrays.setAll(diffs, index -> new CellDiffs());
+
+            Map<String, String[]> expRows = new HashMap<>();
+            List<String[]> keptRows = new ArrayList<>();
+            List<String[]> modifiedRows = new ArrayList<>();
+            List<String[]> insertedRows = new ArrayList<>();
+
+            try (CsvSource source = CsvSource.parse(options, dataset.exp)) {
+                source.getRows().forEach(row -> expRows.put(row[0], row));
+            }
+            try (CsvSource source = CsvSource.parse(options, dataset.act)) {
+                headers = source.getHeaders();
+
+                for (String[] row : source.getRows()) {
+                    String[] expRow = expRows.remove(row[0]);
+
+                    if (expRow == null) {
+                        insertedRows.add(row);
+                    } else if (Arrays.equals(expRow, row)) {
+                        keptRows.add(row);
+                    } else {
+                        modifiedRows.add(row);
+                    }
+                }
+            }
+            kept = getBatches(keptRows);
+            modified = getBatches(modifiedRows);
+            deleted = getBatches(new ArrayList<>(expRows.values()));
+            inserted = getBatches(insertedRows);
+        }
+
+        @TearDown(Level.Invocation)
+        public void delete() throws IOException {
+            // Each invocation writes a new output directory, don't let them pile up across the trial
+            CsvDataset.delete(outputs);
+        }
+
+        private static List<String[][]> getBatches(List<String[]> rows) {
+            List<String[][]> batches = new ArrayList<>();
+
+            for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                batches.add(rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())).toArray(new String[0][]));
+            }
+            return batches;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.ngoanh2n.csv;
+
+import com.univocity.parsers.csv.CsvWriter;
+import com.univocity.parsers.csv.CsvWriterSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generated pair of expected and actual CSV files.<br>
+ * Actual CSV file differs from expected CSV file by {@link #diffRatio} of rows,
+ * split evenly into modified, deleted and inserted rows.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+@State(Scope.Benchmark)
+public class CsvDataset {
+    private static final int CELL_WIDTH = 12;
+    private static final long SEED = 2019;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"4", "16"})
+    public int columns;
+
+    @Param({"0.0", "0.1", "0.5"})
+    public double diffRatio;
+
+    public Path dir;
+    public File exp;
+    public File act;
+    public CsvComparisonOptions options;
+
+    //-------------------------------------------------------------------------------//
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        dir = Files.createTempDirectory("csv-benchmark");
+        exp = dir.resolve("exp.csv").toFile();
+        act = dir.resolve("act.csv").toFile();
+        options = CsvComparisonOptions
+                .builder()
+                .charset(StandardCharsets.UTF_8)
+                .selectColumnId("id")
+                .resultOptions(CsvComparisonResultOptions
+                        .builder()
+                        .location(dir.resolve("outputs"))
+                        .writeOutputs(false)
+                        .build())
+                .build();
+
+        Random random = new Random(SEED);
+        CsvWriter expWriter = new CsvWriter(exp, StandardCharsets.UTF_8, new CsvWriterSettings());
+        CsvWriter actWriter = new CsvWriter(act, StandardCharsets.UTF_8, new CsvWriterSettings());
+        expWriter.writeRow(getHeaders());
+        actWriter.writeRow(getHeaders());
+
+        for (int index = 0; index < rows; index++) {
+            String[] row = getRow(random, "id" + index);
+            expWriter.writeRow(row);
+
+            if (random.nextDouble() >= diffRatio) {
+                actWriter.writeRow(row);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0:
+                    row[1 + random.nextInt(columns - 1)] = getCell(random);
+                    actWriter.writeRow(row);
+                    break;
+                case 1:
+                    // Deleted row
+                    break;
+                default:
+                    actWriter.writeRow(row);
+                    actWriter.writeRow(getRow(random, "new" + index));
+            }
+        }
+        expWriter.close();
+        actWriter.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        delete(dir);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Delete a directory and everything inside it.
+     *
+     * @param dir The directory, nothing happens when it doesn't exist.
+     * @throws IOException If a file cannot be deleted.
+     */
+    static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            List<Path> files = new ArrayList<>();
+            paths.sorted(Comparator.reverseOrder()).forEach(files::add);
+
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private String[] getHeaders() {
+        String[] headers = new String[columns];
+        headers[0] = "id";
+
+        for (int index = 1; index < columns; index++) {
+            headers[index] = "column" + index;
+        }
+        return headers;
+    }
+
+    private String[] getRow(Random random, String id) {
+        String[] row = new String[columns];
+        row[0] = id;
+
+        for (int index = 1; index < columns; index++) {
+            row[index] = getCell(random);
+        }
+        return row;
+    }
+
+    private static String getCell(Random random) {
+        char[] chars = new char[CELL_WIDTH];
+
+        for (int index = 0; index < chars.length; index++) {
+            chars[index] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.ngoanh2n.csv;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+
+/**
+ * Measure indexing parsed expected rows by key.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public class CsvIndexBenchmark {
+    @Benchmark
+    public CsvIndex build(Rows rows) {
+        CsvHeapIndex index = new CsvHeapIndex(rows.key);
+        rows.expRows.forEach(index::put);
+        return index;
+    }
+
+    //===============================================================================//
+
+    @State(Scope.Benchmark)
+    public static class Rows {
+        CsvKey key;
+        List<String[]> expRows;
+
+        @Setup(Level.Trial)
+        public void parse(CsvDataset dataset) {
+            try (CsvSource source = CsvSource.parse(dataset.options, dataset.exp)) {
+                key = source.getKey();
+                expRows = source.getRows();
+            }
+        }
+    }
+}
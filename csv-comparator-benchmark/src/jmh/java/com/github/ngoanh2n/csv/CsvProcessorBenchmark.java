@@ -0,0 +1,100 @@
+package com.github.ngoanh2n.csv;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measure probing actual rows against indexed expected rows, and diffing modified rows.<br>
+ * Rows are only counted, so the result lists don't grow across invocations.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public class CsvProcessorBenchmark {
+    @Benchmark
+    public CsvResult.Collector rowProcessed(Probe probe) {
+        CsvProcessor processor = probe.processor;
+
+        for (String[] actRow : probe.actRows) {
+            processor.rowProcessed(actRow, null);
+        }
+        processor.flush();
+        return processor.collector;
+    }
+
+    @Benchmark
+    public CsvResult.Collector rowModified(Probe probe) {
+        CsvProcessor processor = probe.processor;
+
+        for (String[][] pair : probe.modifiedPairs) {
+            processor.rowMatched(pair[0], pair[1]);
+        }
+        return processor.collector;
+    }
+
+    //===============================================================================//
+
+    @State(Scope.Benchmark)
+    public static class Probe {
+        CsvComparisonOptions options;
+        CsvSource source;
+        List<String[]> expRows;
+        List<String[]> actRows;
+        List<String[][]> modifiedPairs;
+        CsvProcessor processor;
+
+        @Setup(Level.Trial)
+        public void parse(CsvDataset dataset) {
+            options = CsvComparisonOptions
+                    .builder()
+                    .selectColumnId("id")
+                    .resultOptions(CsvComparisonResultOptions
+                            .builder()
+                            .writeOutputs(false)
+                            .retention(CsvComparisonResultOptions.Retention.COUNTS)
+                            .build())
+                    .build();
+
+            try (CsvSource expSource = CsvSource.parse(options, dataset.exp);
+                 CsvSource actSource = CsvSource.parse(options, dataset.act)) {
+                source = expSource;
+                expRows = expSource.getRows();
+                actRows = actSource.getRows();
+            }
+            int column = source.getKey().getColumns()[0];
+            Map<String, String[]> expMap = new HashMap<>();
+            expRows.forEach(row -> expMap.put(row[column], row));
+            modifiedPairs = new ArrayList<>();
+
+            for (String[] actRow : actRows) {
+                String[] expRow = expMap.get(actRow[column]);
+
+                if (expRow != null && !Arrays.equals(expRow, actRow)) {
+                    modifiedPairs.add(new String[][]{expRow, actRow});
+                }
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void index() {
+            // Probing marks expected rows as matched, so each invocation needs a fresh index
+            CsvHeapIndex index = new CsvHeapIndex(source.getKey());
+            expRows.forEach(index::put);
+
+            CsvResult.Collector collector = new CsvResult.Collector(options.resultOptions());
+            processor = new CsvProcessor(options, Collections.emptyList(), collector, index, source);
+        }
+    }
+}
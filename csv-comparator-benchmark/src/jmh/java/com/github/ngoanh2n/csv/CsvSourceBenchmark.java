@@ -0,0 +1,26 @@
+package com.github.ngoanh2n.csv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.List;
+
+/**
+ * Measure parsing expected CSV file into rows.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public class CsvSourceBenchmark {
+    @Benchmark
+    public List<String[]> parse(CsvDataset dataset) {
+        try (CsvSource source = CsvSource.parse(dataset.options, dataset.exp)) {
+            return source.getRows();
+        }
+    }
+}
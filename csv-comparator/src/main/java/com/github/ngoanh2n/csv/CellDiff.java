@@ -0,0 +1,83 @@
+package com.github.ngoanh2n.csv;
+
+import java.util.HashMap;
+
+/**
+ * Difference at a specific cell of a modified row.<br>
+ * Header and cells are resolved lazily from the rows held by {@link CellDiffs}.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public final class CellDiff {
+    private final CellDiffs owner;
+    private int column;
+
+    CellDiff(CellDiffs owner) {
+        this.owner = owner;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * The column index (0-based) in selected columns.
+     *
+     * @return The column index.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * The column name.
+     *
+     * @return The header, or {@code null} when CSV file hasn't headers.
+     */
+    public String getHeader() {
+        return CellDiffs.getCell(owner.getHeaders(), column);
+    }
+
+    /**
+     * The cell value of expected CSV.
+     *
+     * @return The expected cell, or {@code null} when it's empty.
+     */
+    public String getExpCell() {
+        return CellDiffs.getCell(owner.getExpRow(), column);
+    }
+
+    /**
+     * The cell value of actual CSV.
+     *
+     * @return The actual cell, or {@code null} when it's empty.
+     */
+    public String getActCell() {
+        return CellDiffs.getCell(owner.getActRow(), column);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{column=%s, expCell=%s, actCell=%s}",
+                getHeader() == null ? column : getHeader(), getExpCell(), getActCell());
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    void setColumn(int column) {
+        this.column = column;
+    }
+
+    HashMap<String, String> toMap() {
+        HashMap<String, String> map = new HashMap<>();
+        map.put("column", getHeader() == null ? String.valueOf(column) : getHeader());
+        map.put("expCell", getExpCell() == null ? "NULL" : getExpCell());
+        map.put("actCell", getActCell() == null ? "NULL" : getActCell());
+        return map;
+    }
+}
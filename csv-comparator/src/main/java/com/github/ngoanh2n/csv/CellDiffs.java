@@ -0,0 +1,129 @@
+package com.github.ngoanh2n.csv;
+
+import java.util.*;
+
+/**
+ * Differences at cells of a modified row.<br>
+ * It's reused for every modified row of a comparison, so it's only valid during
+ * {@link CsvComparisonVisitor#rowModified(CsvComparisonOptions, String[], String[], CellDiffs)}.
+ * Use {@link #copy()} to keep it afterwards.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public final class CellDiffs extends AbstractList<CellDiff> implements RandomAccess {
+    private CellDiff[] cells = new CellDiff[0];
+    private String[] headers = new String[0];
+    private String[] expRow = new String[0];
+    private String[] actRow = new String[0];
+    private int size;
+
+    CellDiffs() { /**/ }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Headers of CSV files.
+     *
+     * @return The headers, or an empty array when CSV file hasn't headers.
+     */
+    public String[] getHeaders() {
+        return headers;
+    }
+
+    /**
+     * The row of expected CSV.
+     *
+     * @return The expected row.
+     */
+    public String[] getExpRow() {
+        return expRow;
+    }
+
+    /**
+     * The row of actual CSV.
+     *
+     * @return The actual row.
+     */
+    public String[] getActRow() {
+        return actRow;
+    }
+
+    /**
+     * Detach from the comparison, so it can be kept after the callback.
+     *
+     * @return A {@link CellDiffs} with the same differences.
+     */
+    public CellDiffs copy() {
+        CellDiffs copy = new CellDiffs();
+        copy.headers = headers;
+        copy.expRow = expRow;
+        copy.actRow = actRow;
+        copy.size = size;
+        copy.cells = new CellDiff[size];
+
+        for (int index = 0; index < size; index++) {
+            copy.cells[index] = new CellDiff(copy);
+            copy.cells[index].setColumn(cells[index].getColumn());
+        }
+        return copy;
+    }
+
+    @Override
+    public CellDiff get(int index) {
+        Objects.checkIndex(index, size);
+        return cells[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    static String getCell(String[] row, int column) {
+        return column < row.length ? row[column] : null;
+    }
+
+    /**
+     * Diff cells of expected and actual rows, reuse {@link CellDiff} of previous rows.
+     *
+     * @return The number of different cells.
+     */
+    int diff(String[] headers, String[] expRow, String[] actRow) {
+        this.headers = headers;
+        this.expRow = expRow;
+        this.actRow = actRow;
+        this.size = 0;
+        int columns = Math.max(expRow.length, actRow.length);
+
+        for (int column = 0; column < columns; column++) {
+            if (!Objects.equals(getCell(expRow, column), getCell(actRow, column))) {
+                if (size == cells.length) {
+                    cells = Arrays.copyOf(cells, Math.max(4, size * 2));
+                }
+                if (cells[size] == null) {
+                    cells[size] = new CellDiff(this);
+                }
+                cells[size++].setColumn(column);
+            }
+        }
+        return size;
+    }
+
+    List<HashMap<String, String>> toMaps() {
+        List<HashMap<String, String>> maps = new ArrayList<>(size);
+
+        for (int index = 0; index < size; index++) {
+            maps.add(cells[index].toMap());
+        }
+        return maps;
+    }
+}
@@ -15,9 +15,21 @@ import java.util.List;
  */
 class CsvBulkResult implements CsvBulkComparisonResult {
     private final List<CsvComparisonResult> results = new ArrayList<>();
+    private final CsvMetrics metrics = new CsvMetrics();
 
-    void put(CsvComparisonResult result) {
+    synchronized void put(CsvComparisonResult result) {
         results.add(result);
+
+        if (result instanceof CsvResult && ((CsvResult) result).getMetrics() != null) {
+            metrics.add(((CsvResult) result).getMetrics());
+        }
+    }
+
+    /**
+     * The metrics summed from results of file pairs were compared.
+     */
+    CsvMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
@@ -26,12 +38,12 @@ class CsvBulkResult implements CsvBulkComparisonResult {
     }
 
     @Override
-    public int getDiffTotal() {
+    public synchronized int getDiffTotal() {
         return (int) results.stream().filter(CsvComparisonResult::hasDiff).count();
     }
 
     @Override
-    public List<CsvComparisonResult> getDiffResults() {
-        return results;
+    public synchronized List<CsvComparisonResult> getDiffResults() {
+        return new ArrayList<>(results);
     }
 }
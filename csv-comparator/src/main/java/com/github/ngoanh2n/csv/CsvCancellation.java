@@ -0,0 +1,53 @@
+package com.github.ngoanh2n.csv;
+
+/**
+ * A token to cancel comparisons, set to {@link CsvComparisonOptions.Builder#cancellation(CsvCancellation)}.<br>
+ * Comparisons with the token stop reading CSV soon after {@link #cancel()} is called from any thread,
+ * visitors receive {@link CsvComparisonVisitor#comparisonCancelled(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource)}
+ * and {@link java.util.concurrent.CancellationException} is thrown to the caller of {@link CsvComparator}.
+ * A bulk comparison doesn't start file pairs after it's cancelled.
+ * <pre>{@code
+ *      CsvCancellation cancellation = new CsvCancellation();
+ *      CsvComparisonOptions options = CsvComparisonOptions
+ *              .builder()
+ *              .selectColumnId("email")
+ *              .cancellation(cancellation)
+ *              .build();
+ *      scheduler.schedule(cancellation::cancel, 10, TimeUnit.MINUTES);
+ * }</pre>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public final class CsvCancellation {
+    private volatile boolean cancelled;
+
+    /**
+     * Create a token which isn't cancelled.
+     */
+    public CsvCancellation() { /**/ }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Cancel comparisons with this token. It can't be undone.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Whether {@link #cancel()} was called.
+     *
+     * @return Indicate comparisons with this token are cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
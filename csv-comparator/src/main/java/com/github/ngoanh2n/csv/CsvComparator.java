@@ -3,21 +3,31 @@ package com.github.ngoanh2n.csv;
 import com.github.ngoanh2n.Commons;
 import com.github.ngoanh2n.RuntimeError;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Collections2;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingInputStream;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -38,6 +48,7 @@ import java.util.stream.Stream;
  *                      .selectColumnId("email")
  *                      //.selectColumns(1, 2, 3)
  *                      //.selectColumnId(1)
+ *                      //.selectColumnIds("firstname", "lastname")
  *                      .build();
  *              CsvComparisonResult result = CsvComparator.compare(expectedCsvFile, actualCsvFile, options);
  *          }</pre>
@@ -53,10 +64,23 @@ import java.util.stream.Stream;
  *                      .selectColumnId("email")
  *                      //.selectColumns(1, 2, 3)
  *                      //.selectColumnId(1)
+ *                      //.parallelism(4)
  *                      .build();
  *              CsvBulkComparisonResult result = CsvComparator.compare(expectedCsvDir, actualCsvDir, options);
  *          }</pre>
  *     </li>
+ *     <li>Compare 2 CSV sources in memory or from a socket
+ *          <pre>{@code
+ *              CsvComparisonSource expectedCsv = CsvComparisonSource.of("expected", new StringReader(expectedCsvText));
+ *              CsvComparisonSource actualCsv = CsvComparisonSource.ofInputStream("actual", () -> socket.getInputStream());
+ *
+ *              CsvComparisonOptions options = CsvComparisonOptions
+ *                      .builder()
+ *                      .selectColumnId("email")
+ *                      .build();
+ *              CsvComparisonResult result = CsvComparator.compare(expectedCsv, actualCsv, options);
+ *          }</pre>
+ *     </li>
  * </ol>
  *
  * <b>Result</b><br>
@@ -66,10 +90,17 @@ import java.util.stream.Stream;
  *      boolean hasDeletion = CsvComparisonResult.hasDeletion();
  *      boolean hasInsertion = CsvComparisonResult.hasInsertion();
  *      boolean hasModification = CsvComparisonResult.hasModification();
+ *      boolean hasDuplication = CsvComparisonResult.hasDuplication();
  *      List<String[]> keptRows = CsvComparisonResult.getKeptRows();
  *      List<String[]> deletedRows = CsvComparisonResult.getDeletedRows();
  *      List<String[]> insertedRows = CsvComparisonResult.getInsertedRows();
  *      List<String[]> modifiedRows = CsvComparisonResult.getModifiedRows();
+ *      List<String[]> duplicatedRows = CsvComparisonResult.getDuplicatedRows();
+ *      long keptCount = CsvComparisonResult.getKeptCount();
+ *      long deletedCount = CsvComparisonResult.getDeletedCount();
+ *      long insertedCount = CsvComparisonResult.getInsertedCount();
+ *      long modifiedCount = CsvComparisonResult.getModifiedCount();
+ *      long duplicatedCount = CsvComparisonResult.getDuplicatedCount();
  * }</pre><br>
  * {@link CsvBulkComparisonResult} is the result of {@link CsvComparator#compare(Path, Path, CsvComparisonOptions) CsvComparator.compare(expectedCsvDir, actualCsvDir, options)}.
  * <pre>{@code
@@ -81,12 +112,15 @@ import java.util.stream.Stream;
  * <b>Visitor</b><br>
  * {@link CsvComparisonVisitor} for walking through {@link CsvComparator}.
  * <ul>
- *     <li>{@link CsvComparisonVisitor#comparisonStarted(CsvComparisonOptions, File, File)}</li>
+ *     <li>{@link CsvComparisonVisitor#comparisonStarted(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource)}</li>
  *     <li>{@link CsvComparisonVisitor#rowKept(CsvComparisonOptions, String[], String[])}</li>
  *     <li>{@link CsvComparisonVisitor#rowDeleted(CsvComparisonOptions, String[], String[])}</li>
  *     <li>{@link CsvComparisonVisitor#rowInserted(CsvComparisonOptions, String[], String[])}</li>
- *     <li>{@link CsvComparisonVisitor#rowModified(CsvComparisonOptions, String[], String[], List)}</li>
- *     <li>{@link CsvComparisonVisitor#comparisonFinished(CsvComparisonOptions, File, File, CsvComparisonResult)}</li>
+ *     <li>{@link CsvComparisonVisitor#rowModified(CsvComparisonOptions, String[], String[], CellDiffs)}</li>
+ *     <li>{@link CsvComparisonVisitor#rowDuplicated(CsvComparisonOptions, String[], String[])}</li>
+ *     <li>{@link CsvComparisonVisitor#comparisonFinished(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource, CsvComparisonResult)}</li>
+ *     <li>{@link CsvComparisonVisitor#comparisonCancelled(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource)}</li>
+ *     <li>{@link CsvComparisonVisitor#comparisonFailed(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource, Throwable)}</li>
  * </ul>
  *
  * <b>Output</b><br>
@@ -100,6 +134,9 @@ import java.util.stream.Stream;
  *                     .builder()
  *                     .writeOutputs(false)                         // Default to true
  *                     //.setLocation(Paths.get("build/custom"))    // Default to build/ngoanh2n/csv
+ *                     //.retention(Retention.COUNTS)               // Default to Retention.FULL
+ *                     //.outputs(Category.DELETED, Category.INSERTED, Category.MODIFIED) // Default to all categories
+ *                     //.compression(Compression.GZIP)             // Default to Compression.NONE
  *                     .build();
  *              CsvComparisonOptions options = CsvComparisonOptions
  *                      .builder()
@@ -125,14 +162,24 @@ import java.util.stream.Stream;
 @ParametersAreNonnullByDefault
 public class CsvComparator {
     private final static Logger log = LoggerFactory.getLogger(CsvComparator.class);
-    private final File exp;
-    private final File act;
+    private static final Cache<ClassLoader, List<ServiceLoader.Provider<CsvComparisonVisitor>>> providers = CacheBuilder.newBuilder().weakKeys().build();
+    private final CsvComparisonSource exp;
+    private final CsvComparisonSource act;
     private final CsvComparisonOptions options;
+    private final CsvSnapshot snapshot;
 
-    private CsvComparator(File exp, File act, CsvComparisonOptions options) {
+    private CsvComparator(CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonOptions options) {
         this.exp = Preconditions.checkNotNull(exp, "exp CSV cannot be null");
         this.act = Preconditions.checkNotNull(act, "act CSV cannot be null");
         this.options = Preconditions.checkNotNull(options, "options cannot be null");
+        this.snapshot = null;
+    }
+
+    private CsvComparator(CsvSnapshot snapshot, CsvComparisonSource act, CsvComparisonOptions options) {
+        this.snapshot = Preconditions.checkNotNull(snapshot, "exp snapshot cannot be null");
+        this.exp = CsvComparisonSource.of(snapshot.getSource());
+        this.act = Preconditions.checkNotNull(act, "act CSV cannot be null");
+        this.options = Preconditions.checkNotNull(options, "options cannot be null");
     }
 
     //-------------------------------------------------------------------------------//
@@ -160,6 +207,87 @@ public class CsvComparator {
         log.debug("//-----CSV Comparison-----//");
         log.debug("Exp CSV file: {}", Commons.getRelative(exp));
         log.debug("Act CSV file: {}", Commons.getRelative(act));
+        return new CsvComparator(CsvComparisonSource.of(exp), CsvComparisonSource.of(act), options).compare();
+    }
+
+    /**
+     * Compare 2 CSV sources.<br>
+     * Rows are parsed straight from sources, e.g. CSV in memory or from a socket.
+     *
+     * @param exp     The expected CSV source.
+     * @param act     The actual CSV source needs to compare.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @return A {@link CsvComparisonResult} after comparison process ended.
+     */
+    public static CsvComparisonResult compare(CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonOptions options) {
+        log.debug("//-----CSV Comparison-----//");
+        log.debug("Exp CSV source: {}", exp);
+        log.debug("Act CSV source: {}", act);
+        return new CsvComparator(exp, act, options).compare();
+    }
+
+    /**
+     * Compare 2 CSV input streams. Both are read once and closed.
+     *
+     * @param exp     The expected CSV {@link InputStream}.
+     * @param act     The actual CSV {@link InputStream} needs to compare.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @return A {@link CsvComparisonResult} after comparison process ended.
+     */
+    public static CsvComparisonResult compare(InputStream exp, InputStream act, CsvComparisonOptions options) {
+        return compare(CsvComparisonSource.of("exp", exp), CsvComparisonSource.of("act", act), options);
+    }
+
+    /**
+     * Compare 2 CSV readers. Both are read once and closed.
+     *
+     * @param exp     The expected CSV {@link Reader}.
+     * @param act     The actual CSV {@link Reader} needs to compare.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @return A {@link CsvComparisonResult} after comparison process ended.
+     */
+    public static CsvComparisonResult compare(Reader exp, Reader act, CsvComparisonOptions options) {
+        return compare(CsvComparisonSource.of("exp", exp), CsvComparisonSource.of("act", act), options);
+    }
+
+    /**
+     * Compare 2 CSV channels. Both are read once and closed.
+     *
+     * @param exp     The expected CSV {@link ReadableByteChannel}.
+     * @param act     The actual CSV {@link ReadableByteChannel} needs to compare.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @return A {@link CsvComparisonResult} after comparison process ended.
+     */
+    public static CsvComparisonResult compare(ReadableByteChannel exp, ReadableByteChannel act, CsvComparisonOptions options) {
+        return compare(CsvComparisonSource.of("exp", exp), CsvComparisonSource.of("act", act), options);
+    }
+
+    /**
+     * Compare a CSV file against the snapshot of expected CSV file.<br>
+     * The expected CSV file isn't parsed again, rows are looked up in the snapshot.
+     *
+     * @param exp     The {@link CsvSnapshot} of expected CSV file.
+     * @param act     The actual CSV file needs to compare.
+     * @param options The {@link CsvComparisonOptions} which the snapshot was compiled with.
+     * @return A {@link CsvComparisonResult} after comparison process ended.
+     */
+    public static CsvComparisonResult compare(CsvSnapshot exp, File act, CsvComparisonOptions options) {
+        return compare(exp, CsvComparisonSource.of(act), options);
+    }
+
+    /**
+     * Compare a CSV source against the snapshot of expected CSV file.<br>
+     * The expected CSV file isn't parsed again, rows are looked up in the snapshot.
+     *
+     * @param exp     The {@link CsvSnapshot} of expected CSV file.
+     * @param act     The actual CSV source needs to compare.
+     * @param options The {@link CsvComparisonOptions} which the snapshot was compiled with.
+     * @return A {@link CsvComparisonResult} after comparison process ended.
+     */
+    public static CsvComparisonResult compare(CsvSnapshot exp, CsvComparisonSource act, CsvComparisonOptions options) {
+        log.debug("//-----CSV Comparison-----//");
+        log.debug("Exp CSV snapshot: {}", Commons.getRelative(exp.getFile()));
+        log.debug("Act CSV source: {}", act);
         return new CsvComparator(exp, act, options).compare();
     }
 
@@ -177,7 +305,15 @@ public class CsvComparator {
 
     /**
      * Compare 2 CSV directories.<br>
-     * All CSV files in directories must be same column format.
+     * All CSV files in directories must be same column format.<br>
+     * Files are paired by their relative paths, a pair is compared as soon as both files are found.
+     * A file present in only one directory is compared against an absent CSV,
+     * all its rows are reported as deleted or inserted.<br>
+     * File pairs which are unchanged since the last bulk comparison are skipped when {@link CsvComparisonOptions#manifest()} is set.<br>
+     * File pairs are compared concurrently when {@link CsvComparisonOptions#parallelism()} is greater than 1
+     * or {@link CsvComparisonOptions#executor()} is set.
+     * Bulk comparison stops at the next file pair when {@link CsvComparisonOptions#cancellation()} is cancelled,
+     * or at the first different file pair with {@link CsvComparisonOptions#failFast()}.
      *
      * @param exp     The expected CSV directory.
      * @param act     The actual CSV directory needs to compare.
@@ -190,76 +326,500 @@ public class CsvComparator {
         log.debug("Act CSV directory: {}", Commons.getRelative(act));
 
         CsvBulkResult result = new CsvBulkResult();
-        List<Map.Entry<Path, Path>> sources = getSources(exp, act);
+        CsvManifest manifest = options.manifest() == null ? null : CsvManifest.load(options.manifest(), options);
 
-        for (Map.Entry<Path, Path> source : sources) {
-            File actCSV = source.getKey().toFile();
-            File expCSV = source.getValue().toFile();
-            result.put(compare(expCSV, actCSV, options));
+        if (options.executor() == null && options.parallelism() == 1) {
+            forEachSource(exp, act, (target, expCSV, actCSV) -> {
+                CsvComparisonResult pair = compare(target, expCSV, actCSV, options, manifest);
+                result.put(pair);
+                return !(options.failFast() && pair.hasDiff());
+            });
+        } else {
+            doBulkComparison(exp, act, options, manifest, result);
+        }
+        if (manifest != null) {
+            manifest.save();
+        }
+        if (CsvMetrics.isEnabled(options)) {
+            options.metrics().bulkMeasured(exp, act, result.getMetrics());
         }
         return result;
     }
 
     //-------------------------------------------------------------------------------//
 
-    private static CsvResult.Collector doComparison(File exp, File act, CsvComparisonOptions options, List<CsvComparisonVisitor> visitors) {
+    private static CsvResult.Collector doComparison(CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonOptions options, List<CsvComparisonVisitor> visitors, @Nullable CsvMetrics metrics, @Nullable CsvTracker tracker) {
+        if (exp.isAbsent() || act.isAbsent()) {
+            return doWholeFileComparison(exp, act, options, visitors, metrics, tracker);
+        }
+        if (options.byteCheck() && isIdentical(exp, act)) {
+            return doIdenticalComparison(exp, options, visitors, metrics, tracker);
+        }
+        if (options.presorted() || options.memoryBudget() > 0) {
+            return doMergeComparison(exp, act, options, visitors, metrics, tracker);
+        }
+        if (options.partitions() > 1 && options.indexDir() == null && !options.failFast()) {
+            return doPartitionedComparison(exp, act, options, visitors, metrics, tracker);
+        }
         CsvParserSettings settings = getSettings(options);
-        CsvSource source = CsvSource.parse(options, exp);
-        CsvResult.Collector collector = new CsvResult.Collector();
-
-        Map<String, String[]> expMap = source.getRows().stream().collect(
-                Collectors.toMap(rk -> rk[source.getColumnId()], rv -> rv, (rk, rv) -> rv));
-        settings.setProcessor(new CsvProcessor(options, visitors, collector, expMap, source));
-        new CsvParser(settings).parse(act, CsvSource.getCharset(options, act));
-
-        if (!expMap.isEmpty()) {
-            for (Map.Entry<String, String[]> left : expMap.entrySet()) {
-                String[] row = left.getValue();
-                collector.rowDeleted(options, source.getHeaders(), row);
-                visitors.forEach(visitor -> visitor.rowDeleted(options, source.getHeaders(), row));
+        CsvResult.Collector collector = CsvResult.Collector.of(options);
+
+        try (CsvSource source = CsvSource.stream(options, exp)) {
+            long starting = System.nanoTime();
+            long parsing = source.getIterator().getNanos();
+            source.getIterator().track(tracker, CsvComparisonProgress.Phase.EXP);
+            CsvIndex expIndex = getIndex(exp, options, source);
+
+            if (metrics != null) {
+                metrics.addExpParse(source);
+                metrics.addIndex(System.nanoTime() - starting - (source.getIterator().getNanos() - parsing), expIndex.size());
             }
+            CsvProcessor processor = new CsvProcessor(options, visitors, collector, expIndex, source);
+            probe(settings, act, options, processor, metrics, tracker);
+        }
+        return collector;
+    }
+
+    private static CsvResult.Collector doSnapshotComparison(CsvSnapshot snapshot, CsvComparisonSource act, CsvComparisonOptions options, List<CsvComparisonVisitor> visitors, @Nullable CsvMetrics metrics, @Nullable CsvTracker tracker) {
+        if (!snapshot.isValid(options)) {
+            String msg = String.format("CSV snapshot is stale: %s", Commons.getRelative(snapshot.getFile()));
+            log.error(msg);
+            throw new RuntimeError(msg);
         }
+        CsvParserSettings settings = getSettings(options);
+        CsvResult.Collector collector = CsvResult.Collector.of(options);
+        CsvSource source = CsvSource.of(snapshot.getHeaders(), snapshot.getKey());
+
+        CsvIndex expIndex = snapshot.getIndex();
+
+        if (metrics != null) {
+            metrics.addIndex(0, expIndex.size());
+        }
+        CsvProcessor processor = new CsvProcessor(options, visitors, collector, expIndex, source);
+        probe(settings, act, options, processor, metrics, tracker);
         return collector;
     }
 
+    /**
+     * Parse actual CSV and probe its rows in the index of processor.
+     */
+    private static void probe(CsvParserSettings settings, CsvComparisonSource act, CsvComparisonOptions options, CsvProcessor processor, @Nullable CsvMetrics metrics, @Nullable CsvTracker tracker) {
+        long starting = System.nanoTime();
+        processor.timed = metrics != null;
+        processor.tracker = tracker;
+        long bytes = parse(settings, act, options, processor);
+        long parsed = System.nanoTime();
+
+        if (tracker != null) {
+            // Processor stops parsing when comparison is cancelled
+            tracker.check();
+            tracker.progressed(CsvComparisonProgress.Phase.ACT, processor.getRows(), bytes);
+        }
+        processor.flush();
+
+        if (metrics != null) {
+            metrics.addActParse(parsed - starting - processor.probeNanos, processor.probeRows, bytes);
+            metrics.addProbe(processor.probeNanos + System.nanoTime() - parsed);
+        }
+    }
+
+    /**
+     * Parse actual CSV with the processor.
+     *
+     * @return The number of bytes are read.
+     */
+    private static long parse(CsvParserSettings settings, CsvComparisonSource act, CsvComparisonOptions options, CsvProcessor processor) {
+        settings.setProcessor(processor);
+
+        if (act.isReader()) {
+            processor.bytes = () -> 0;
+            new CsvParser(settings).parse(act.openReader());
+            return 0;
+        }
+        Charset charset = CsvSource.getCharset(options, act);
+        CountingInputStream in = new CountingInputStream(act.openStream());
+        processor.bytes = in::getCount;
+        new CsvParser(settings).parse(in, charset);
+        return in.getCount();
+    }
+
+    private static CsvIndex getIndex(CsvComparisonSource exp, CsvComparisonOptions options, CsvSource source) {
+        if (options.indexDir() != null && exp.getFile() != null) {
+            return CsvMappedIndex.open(options.indexDir(), options, exp.getFile(), source);
+        }
+        CsvHeapIndex index = new CsvHeapIndex(source.getKey(), options.duplicateKeys());
+        source.getIterator().forEachRemaining(index::put);
+        return index;
+    }
+
+    private static CsvResult.Collector doMergeComparison(CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonOptions options, List<CsvComparisonVisitor> visitors, @Nullable CsvMetrics metrics, @Nullable CsvTracker tracker) {
+        CsvParserSettings settings = getSettings(options);
+        CsvResult.Collector collector = CsvResult.Collector.of(options);
+        Comparator<String> keyOrder = CsvMerger.getKeyOrder(options);
+        // Both sorters may buffer rows at the same time, each CSV file gets half of the budget
+        long memoryBudget = Math.max(1, options.memoryBudget() / 2);
+
+        try (CsvSource source = CsvSource.stream(options, exp);
+             CsvIterator actRows = new CsvIterator(settings, act, CsvSource.getCharset(options, act), metrics != null);
+             CsvSorter expSorter = new CsvSorter(source.getKey(), memoryBudget, keyOrder);
+             CsvSorter actSorter = new CsvSorter(source.getKey(), memoryBudget, keyOrder)) {
+            long starting = System.nanoTime();
+            long parsing = source.getIterator().getNanos() + actRows.getNanos();
+            source.getIterator().track(tracker, CsvComparisonProgress.Phase.EXP);
+            actRows.track(tracker, CsvComparisonProgress.Phase.ACT);
+            Iterator<String[]> expIterator = source.getIterator();
+            Iterator<String[]> actIterator = actRows;
+
+            if (!options.presorted()) {
+                expIterator = expSorter.sort(expIterator);
+                actIterator = actSorter.sort(actIterator);
+            }
+            long sorted = System.nanoTime();
+            long sortParsing = source.getIterator().getNanos() + actRows.getNanos() - parsing;
+            CsvProcessor processor = new CsvProcessor(options, visitors, collector, source);
+            new CsvMerger(processor, source.getKey(), keyOrder, options.duplicateKeys()).merge(expIterator, actIterator);
+            processor.flush();
+
+            if (metrics != null) {
+                long mergeParsing = source.getIterator().getNanos() + actRows.getNanos() - parsing - sortParsing;
+                metrics.addExpParse(source);
+                metrics.addActParse(actRows);
+                metrics.addIndex(sorted - starting - sortParsing, 0);
+                metrics.addProbe(System.nanoTime() - sorted - mergeParsing);
+            }
+        }
+        return collector;
+    }
+
+    private static CsvResult.Collector doPartitionedComparison(CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonOptions options, List<CsvComparisonVisitor> visitors, @Nullable CsvMetrics metrics, @Nullable CsvTracker tracker) {
+        CsvParserSettings settings = getSettings(options);
+        int partitions = options.partitions();
+        List<List<String[]>> expPartitions = new ArrayList<>(partitions);
+        List<List<String[]>> actPartitions = new ArrayList<>(partitions);
+
+        for (int partition = 0; partition < partitions; partition++) {
+            expPartitions.add(new ArrayList<>());
+            actPartitions.add(new ArrayList<>());
+        }
+
+        try (CsvSource source = CsvSource.stream(options, exp);
+             CsvIterator actRows = new CsvIterator(settings, act, CsvSource.getCharset(options, act), metrics != null)) {
+            long starting = System.nanoTime();
+            long parsing = source.getIterator().getNanos();
+            CsvKey key = source.getKey();
+            source.getIterator().track(tracker, CsvComparisonProgress.Phase.EXP);
+            actRows.track(tracker, CsvComparisonProgress.Phase.ACT);
+            source.getIterator().forEachRemaining(row -> expPartitions.get(getPartition(key.hash(row), partitions)).add(row));
+            actRows.forEachRemaining(row -> actPartitions.get(getPartition(key.hash(row), partitions)).add(row));
+
+            if (metrics != null) {
+                metrics.addExpParse(source);
+                metrics.addActParse(actRows);
+                metrics.addIndex(System.nanoTime() - starting - (source.getIterator().getNanos() - parsing) - actRows.getNanos(), 0);
+            }
+
+            Object lock = options.concurrentVisitors() ? null : new Object();
+            List<Callable<CsvResult.Collector>> tasks = new ArrayList<>(partitions);
+
+            for (int partition = 0; partition < partitions; partition++) {
+                List<String[]> expRows = expPartitions.get(partition);
+                List<String[]> actPartition = actPartitions.get(partition);
+
+                tasks.add(() -> {
+                    if (tracker != null) {
+                        tracker.check();
+                    }
+                    long indexing = System.nanoTime();
+                    CsvResult.Collector collector = CsvResult.Collector.of(options);
+                    CsvHeapIndex expIndex = new CsvHeapIndex(key, options.duplicateKeys());
+                    expRows.forEach(expIndex::put);
+                    expRows.clear();
+
+                    long probing = System.nanoTime();
+                    CsvProcessor processor = new CsvProcessor(options, visitors, collector, expIndex, source);
+                    processor.lock = lock;
+                    actPartition.forEach(processor::rowProbed);
+                    processor.flush();
+
+                    if (metrics != null) {
+                        metrics.addIndex(probing - indexing, expIndex.size());
+                        metrics.addProbe(System.nanoTime() - probing);
+                    }
+                    return collector;
+                });
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(Math.min(partitions, Runtime.getRuntime().availableProcessors()));
+            try {
+                CsvResult.Collector collector = CsvResult.Collector.of(options);
+                getResults(pool.invokeAll(tasks)).forEach(collector::merge);
+                return collector;
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static int getPartition(long hash, int partitions) {
+        // Low bits pick slots in the index of a partition, so high bits pick the partition
+        return Math.floorMod((int) (hash >>> 32), partitions);
+    }
+
+    private static CsvResult.Collector doIdenticalComparison(CsvComparisonSource exp, CsvComparisonOptions options, List<CsvComparisonVisitor> visitors, @Nullable CsvMetrics metrics, @Nullable CsvTracker tracker) {
+        log.debug("Exp CSV and Act CSV are byte-identical");
+        CsvResult.Collector collector = CsvResult.Collector.of(options);
+
+        try (CsvSource source = CsvSource.stream(options, exp)) {
+            long starting = System.nanoTime();
+            long parsing = source.getIterator().getNanos();
+            CsvIterator rows = source.getIterator();
+            rows.track(tracker, CsvComparisonProgress.Phase.EXP);
+
+            if (collector.isRowRetained() || (!options.failFast() && isRowKeptVisited(visitors))) {
+                CsvProcessor processor = new CsvProcessor(options, visitors, collector, source);
+                rows.forEachRemaining(processor::rowKept);
+                processor.flush();
+            } else if (collector.counting) {
+                long count = 0;
+                for (; rows.hasNext(); rows.next()) {
+                    count++;
+                }
+                collector.rowsKept(count);
+            }
+
+            if (metrics != null) {
+                metrics.addExpParse(source);
+                metrics.addProbe(System.nanoTime() - starting - (rows.getNanos() - parsing));
+            }
+        }
+        return collector;
+    }
+
+    private static CsvResult.Collector doWholeFileComparison(CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonOptions options, List<CsvComparisonVisitor> visitors, @Nullable CsvMetrics metrics, @Nullable CsvTracker tracker) {
+        boolean deleted = act.isAbsent();
+        log.debug("{} CSV is absent", deleted ? "Act" : "Exp");
+        CsvResult.Collector collector = CsvResult.Collector.of(options);
+
+        try (CsvSource source = CsvSource.stream(options, deleted ? exp : act)) {
+            long starting = System.nanoTime();
+            long parsing = source.getIterator().getNanos();
+            source.getIterator().track(tracker, deleted ? CsvComparisonProgress.Phase.EXP : CsvComparisonProgress.Phase.ACT);
+            CsvProcessor processor = new CsvProcessor(options, visitors, collector, source);
+            CsvIterator rows = source.getIterator();
+
+            while (rows.hasNext() && !processor.isStopped()) {
+                String[] row = rows.next();
+
+                if (deleted) {
+                    processor.rowDeleted(row);
+                } else {
+                    processor.rowInserted(row);
+                }
+            }
+            processor.flush();
+
+            if (metrics != null) {
+                if (deleted) {
+                    metrics.addExpParse(source);
+                } else {
+                    metrics.addActParse(source);
+                }
+                metrics.addProbe(System.nanoTime() - starting - (source.getIterator().getNanos() - parsing));
+            }
+        }
+        return collector;
+    }
+
+    private static boolean isIdentical(CsvComparisonSource exp, CsvComparisonSource act) {
+        if (exp.getFile() == null || act.getFile() == null) {
+            // Only files are compared by bytes, other sources would be read twice
+            return false;
+        }
+        try {
+            return CsvInput.isIdentical(exp.getFile(), act.getFile());
+        } catch (IOException ex) {
+            String msg = "Error occurred while comparing bytes of CSV files";
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+
+    private static boolean isRowKeptVisited(List<CsvComparisonVisitor> visitors) {
+        for (CsvComparisonVisitor visitor : visitors) {
+            if (visitor.visitsKeptRows()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void doBulkComparison(Path exp, Path act, CsvComparisonOptions options, @Nullable CsvManifest manifest, CsvBulkResult result) {
+        ExecutorService executor = options.executor() != null
+                ? options.executor()
+                : Executors.newFixedThreadPool(options.parallelism());
+        List<Future<CsvComparisonResult>> futures = new ArrayList<>();
+        AtomicBoolean differed = new AtomicBoolean();
+
+        try {
+            forEachSource(exp, act, (target, expCSV, actCSV) -> {
+                // Stop walking directories when bulk comparison is cancelled
+                CsvTracker.check(options);
+                futures.add(executor.submit(() -> {
+                    if (differed.get()) {
+                        // A different file pair was found with fail-fast, the pair isn't compared
+                        return null;
+                    }
+                    CsvComparisonResult pair = compare(target, expCSV, actCSV, options, manifest);
+
+                    if (options.failFast() && pair.hasDiff()) {
+                        differed.set(true);
+                    }
+                    return pair;
+                }));
+                return !differed.get();
+            });
+            getResults(futures).stream().filter(Objects::nonNull).forEach(result::put);
+        } finally {
+            if (options.executor() == null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static CsvComparisonResult compare(String target, CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonOptions options, @Nullable CsvManifest manifest) {
+        if (manifest == null) {
+            return compare(exp, act, options);
+        }
+        CsvComparisonResult result = manifest.get(target, exp, act);
+
+        if (result != null) {
+            log.debug("Reuse result of unchanged CSV files: {}", target);
+            return result;
+        }
+        result = compare(exp, act, options);
+        manifest.put(target, result);
+        return result;
+    }
+
+    private static <T> List<T> getResults(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException ex) {
+            futures.forEach(future -> future.cancel(true));
+            if (ex.getCause() instanceof RuntimeError) {
+                throw (RuntimeError) ex.getCause();
+            }
+            if (ex.getCause() instanceof CancellationException) {
+                throw (CancellationException) ex.getCause();
+            }
+            String msg = "Error occurred while comparing concurrently: " + ex.getCause().getMessage();
+            log.error(msg);
+            throw new RuntimeError(msg, ex.getCause());
+        } catch (InterruptedException ex) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            String msg = "CSV comparison was interrupted";
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+
     private static CsvParserSettings getSettings(CsvComparisonOptions options) {
         Commons.createDir(options.resultOptions().location());
         return options.parserSettings().clone();
     }
 
-    private static List<Map.Entry<Path, Path>> getSources(Path exp, Path act) {
-        try {
-            List<Path> expFiles = getCSVFiles(exp);
-            List<Path> actFiles = getCSVFiles(act);
+    /**
+     * Walk both directories at once, files are paired through their relative paths as soon as both are found.
+     * Files of only one directory are paired with an absent CSV after walking.
+     * Walking stops when the consumer declines to continue.
+     */
+    private static void forEachSource(Path exp, Path act, SourceConsumer consumer) {
+        Map<String, Path> expFiles = new LinkedHashMap<>();
+        Map<String, Path> actFiles = new LinkedHashMap<>();
+        int pairs = 0;
 
-            log.debug("Exp CSV files: {}", expFiles.size());
-            log.debug("Act CSV files: {}", actFiles.size());
-            List<Map.Entry<Path, Path>> sources = new ArrayList<>(actFiles.size());
+        try (Stream<Path> expStream = getCSVFiles(exp);
+             Stream<Path> actStream = getCSVFiles(act)) {
+            Iterator<Path> expIterator = expStream.iterator();
+            Iterator<Path> actIterator = actStream.iterator();
 
-            for (Path actFile : actFiles) {
-                String actTarget = String.valueOf(act.relativize(actFile));
+            while (expIterator.hasNext() || actIterator.hasNext()) {
+                if (expIterator.hasNext()) {
+                    Path expFile = expIterator.next();
+                    String target = getTarget(exp, expFile);
+                    Path actFile = actFiles.remove(target);
 
-                for (Path expFile : expFiles) {
-                    String expTarget = String.valueOf(exp.relativize(expFile));
+                    if (actFile == null) {
+                        expFiles.put(target, expFile);
+                    } else {
+                        pairs++;
 
-                    if (actTarget.equals(expTarget)) {
-                        sources.add(new AbstractMap.SimpleEntry<>(actFile, expFile));
-                        break;
+                        if (!consumer.accept(target, CsvComparisonSource.of(expFile.toFile()), CsvComparisonSource.of(actFile.toFile()))) {
+                            log.debug("Stop at the first different file pair: {}", target);
+                            return;
+                        }
+                    }
+                }
+                if (actIterator.hasNext()) {
+                    Path actFile = actIterator.next();
+                    String target = getTarget(act, actFile);
+                    Path expFile = expFiles.remove(target);
+
+                    if (expFile == null) {
+                        actFiles.put(target, actFile);
+                    } else {
+                        pairs++;
+
+                        if (!consumer.accept(target, CsvComparisonSource.of(expFile.toFile()), CsvComparisonSource.of(actFile.toFile()))) {
+                            log.debug("Stop at the first different file pair: {}", target);
+                            return;
+                        }
                     }
                 }
             }
-            return sources;
-        } catch (IOException ex) {
+        } catch (IOException | UncheckedIOException ex) {
             String msg = "Error occurred while reading CSV files in directory";
             log.error(msg);
             throw new RuntimeError(msg, ex);
         }
-    }
+        log.debug("Paired CSV files: {}", pairs);
+        log.debug("Exp only CSV files: {}", expFiles.size());
+        log.debug("Act only CSV files: {}", actFiles.size());
 
-    private static List<Path> getCSVFiles(Path path) throws IOException {
-        try (Stream<Path> stream = Files.walk(path)) {
-            return stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        for (Map.Entry<String, Path> expFile : expFiles.entrySet()) {
+            if (!consumer.accept(expFile.getKey(), CsvComparisonSource.of(expFile.getValue().toFile()), CsvComparisonSource.absent(act.resolve(expFile.getKey())))) {
+                log.debug("Stop at the first different file pair: {}", expFile.getKey());
+                return;
+            }
         }
+        for (Map.Entry<String, Path> actFile : actFiles.entrySet()) {
+            if (!consumer.accept(actFile.getKey(), CsvComparisonSource.absent(exp.resolve(actFile.getKey())), CsvComparisonSource.of(actFile.getValue().toFile()))) {
+                log.debug("Stop at the first different file pair: {}", actFile.getKey());
+                return;
+            }
+        }
+    }
+
+    private static Stream<Path> getCSVFiles(Path path) throws IOException {
+        return Files.walk(path)
+                .filter(Files::isRegularFile)
+                .flatMap(file -> {
+                    try {
+                        return CsvInput.list(file).stream();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+
+    private static String getTarget(Path dir, Path file) {
+        return String.valueOf(dir.relativize(file)).replace(File.separatorChar, '/');
     }
 
     //-------------------------------------------------------------------------------//
@@ -267,15 +827,32 @@ public class CsvComparator {
     private CsvComparisonResult compare() {
         CsvComparisonResult result;
         long starting = System.currentTimeMillis();
-        List<CsvComparisonVisitor> visitors = getVisitors();
+        long startingNanos = System.nanoTime();
+        CsvMetrics metrics = CsvMetrics.isEnabled(options) ? new CsvMetrics() : null;
+        CsvTracker tracker = CsvTracker.of(options, exp, act);
+        CsvTracker.check(options);
+        List<CsvComparisonVisitor> visitors = getVisitors(metrics != null);
 
         try {
             visitors.forEach(visitor -> visitor.comparisonStarted(options, exp, act));
-            CsvResult.Collector collector = doComparison(exp, act, options, visitors);
-            result = new CsvResult(collector);
+            CsvResult.Collector collector = snapshot == null
+                    ? doComparison(exp, act, options, visitors, metrics, tracker)
+                    : doSnapshotComparison(snapshot, act, options, visitors, metrics, tracker);
+            result = new CsvResult(collector, metrics);
             visitors.forEach(visitor -> visitor.comparisonFinished(options, exp, act, result));
             log.debug("CSV comparison result: {}", result);
+
+            if (metrics != null) {
+                metrics.addTotal(System.nanoTime() - startingNanos);
+                CsvMeteredVisitor.flush(visitors, metrics);
+                log.debug("CSV comparison metrics: {}", metrics);
+                options.metrics().comparisonMeasured(exp, act, metrics);
+            }
+        } catch (CancellationException ex) {
+            notifyVisitors(visitors, visitor -> visitor.comparisonCancelled(options, exp, act), ex);
+            throw ex;
         } catch (Exception ex) {
+            notifyVisitors(visitors, visitor -> visitor.comparisonFailed(options, exp, act, ex), ex);
             String msg = "Error occurred while comparing: " + ex.getMessage();
             log.error(msg);
             throw new RuntimeError(msg, ex);
@@ -287,16 +864,54 @@ public class CsvComparator {
         return result;
     }
 
-    private List<CsvComparisonVisitor> getVisitors() {
-        ServiceLoader<CsvComparisonVisitor> serviceLoader = ServiceLoader.load(CsvComparisonVisitor.class);
-        ImmutableList<CsvComparisonVisitor> visitors = ImmutableList.copyOf(serviceLoader.iterator());
-
-        if (!options.resultOptions().writeOutputs()) {
-            visitors = ImmutableList.copyOf(Collections2
-                    .filter(visitors, visitor -> !visitor.getClass().getName().equals(CsvComparisonOutput.class.getName())));
+    /**
+     * Notify all visitors of an abnormal end, so they release resources even when one of them fails.
+     */
+    private static void notifyVisitors(List<CsvComparisonVisitor> visitors, Consumer<CsvComparisonVisitor> callback, Exception error) {
+        for (CsvComparisonVisitor visitor : visitors) {
+            try {
+                callback.accept(visitor);
+            } catch (RuntimeException ex) {
+                error.addSuppressed(ex);
+            }
         }
+    }
 
-        visitors.forEach(visitor -> log.debug("{}", visitor.getClass().getName()));
+    private List<CsvComparisonVisitor> getVisitors(boolean metered) {
+        boolean writeOutputs = options.resultOptions().writeOutputs() && !options.resultOptions().outputs().isEmpty() && !options.failFast();
+        List<CsvComparisonVisitor> visitors = new ArrayList<>();
+
+        for (ServiceLoader.Provider<CsvComparisonVisitor> provider : getProviders()) {
+            if (writeOutputs || !provider.type().getName().equals(CsvComparisonOutput.class.getName())) {
+                // Visitors hold state of a comparison, a new instance is created per comparison
+                CsvComparisonVisitor visitor = provider.get();
+                visitors.add(metered ? new CsvMeteredVisitor(visitor) : visitor);
+                log.debug("{}", visitor.getClass().getName());
+            }
+        }
         return visitors;
     }
+
+    private static List<ServiceLoader.Provider<CsvComparisonVisitor>> getProviders() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ClassLoader.getSystemClassLoader();
+        }
+        List<ServiceLoader.Provider<CsvComparisonVisitor>> cached = providers.getIfPresent(classLoader);
+
+        if (cached == null) {
+            cached = ServiceLoader.load(CsvComparisonVisitor.class, classLoader).stream().collect(ImmutableList.toImmutableList());
+            providers.put(classLoader, cached);
+        }
+        return cached;
+    }
+
+    //===============================================================================//
+
+    /**
+     * Accept a file pair of bulk comparison with its relative path, and tell whether to continue with next file pairs.
+     */
+    private interface SourceConsumer {
+        boolean accept(String target, CsvComparisonSource exp, CsvComparisonSource act);
+    }
 }
@@ -0,0 +1,57 @@
+package com.github.ngoanh2n.csv;
+
+import java.nio.file.Path;
+
+/**
+ * Receive metrics of comparisons, set to {@link CsvComparisonOptions.Builder#metrics(CsvComparisonMetrics)}.<br>
+ * Comparisons aren't measured with the default {@link #noop()}.
+ * Use {@link CsvMetrics} to sum metrics in memory, or implement it to report metrics to other places.
+ * <pre>{@code
+ *      CsvMetrics metrics = new CsvMetrics();
+ *      CsvComparisonOptions options = CsvComparisonOptions
+ *              .builder()
+ *              .selectColumnId("email")
+ *              .metrics(metrics)
+ *              .build();
+ *      CsvComparator.compare(expectedCsvDir, actualCsvDir, options);
+ *      Duration parseTime = metrics.getActParseTime();
+ * }</pre>
+ * It's called from multiple threads when comparisons run concurrently.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public interface CsvComparisonMetrics {
+    /**
+     * Get the {@link CsvComparisonMetrics} which turns off measuring.
+     *
+     * @return The default {@link CsvComparisonMetrics}.
+     */
+    static CsvComparisonMetrics noop() {
+        return CsvMetrics.NOOP;
+    }
+
+    /**
+     * Callback after a comparison between 2 CSV sources ended.
+     *
+     * @param exp     The expected CSV source.
+     * @param act     The actual CSV source.
+     * @param metrics The {@link CsvMetrics} of the comparison.
+     */
+    void comparisonMeasured(CsvComparisonSource exp, CsvComparisonSource act, CsvMetrics metrics);
+
+    /**
+     * Callback after a bulk comparison between 2 CSV directories ended.
+     *
+     * @param exp     The expected CSV directory.
+     * @param act     The actual CSV directory.
+     * @param metrics The {@link CsvMetrics} summed from all file pairs were compared.
+     */
+    default void bulkMeasured(Path exp, Path act, CsvMetrics metrics) {/**/}
+}
@@ -1,16 +1,29 @@
 package com.github.ngoanh2n.csv;
 
+import com.github.ngoanh2n.Commons;
+import com.github.ngoanh2n.RuntimeError;
+import com.univocity.parsers.common.fields.FieldIndexSelector;
+import com.univocity.parsers.common.fields.FieldNameSelector;
+import com.univocity.parsers.common.fields.FieldSelector;
 import com.univocity.parsers.csv.CsvParserSettings;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Adjust behaviors of {@link CsvComparator}.<br><br>
+ * Adjust behaviors of {@link CsvComparator}.<br>
+ * Options are immutable once they're built, an instance can be shared by concurrent comparisons.<br><br>
  *
  * <em>Repository:</em>
  * <ul>
@@ -45,7 +58,7 @@ public interface CsvComparisonOptions {
     /**
      * {@link Charset} for reading and writing CSV files.
      *
-     * @return A {@link Charset}.
+     * @return A {@link Charset}, or {@code null} when it's detected, see {@link Builder#charset(Charset)}.
      */
     @Nullable
     Charset charset();
@@ -53,18 +66,50 @@ public interface CsvComparisonOptions {
     /**
      * Which column index or name where has a data field unique.
      *
-     * @return The column id.
+     * @return The column id, it's the first one of {@link #columnIds()}.
      */
     Object columnId();
 
+    /**
+     * Which column indexes or names where have data fields unique together, e.g. a composite primary key.
+     *
+     * @return The column ids.
+     */
+    @Nonnull
+    default List<?> columnIds() {
+        return columnId() == null ? Collections.emptyList() : Collections.singletonList(columnId());
+    }
+
     /**
      * The configuration class used by the CSV parser.
      *
-     * @return A {@link CsvParserSettings}.
+     * @return A {@link CsvParserSettings}. It's a copy, changing it doesn't affect the options.
      */
     @Nonnull
     CsvParserSettings parserSettings();
 
+    /**
+     * Columns are selected to compare.
+     *
+     * @return The selected column names or indexes, or {@code null} when all columns are compared.
+     */
+    @Nullable
+    default List<?> selectedColumns() {
+        // Options which aren't built by Builder, read selection from parser settings
+        FieldSelector selector = Commons.readField(parserSettings(), "fieldSelector");
+
+        if (selector == null) {
+            return null;
+        }
+        if (selector instanceof FieldNameSelector) {
+            return ((FieldNameSelector) selector).get();
+        }
+        if (selector instanceof FieldIndexSelector) {
+            return ((FieldIndexSelector) selector).get();
+        }
+        throw new RuntimeError("Unknown column selector");
+    }
+
     /**
      * The comparison result options to adjust behaviors of {@link CsvComparisonResult}.
      *
@@ -73,6 +118,148 @@ public interface CsvComparisonOptions {
     @Nonnull
     CsvComparisonResultOptions resultOptions();
 
+    /**
+     * Number of CSV file pairs are compared concurrently in bulk comparison.
+     *
+     * @return The parallelism level.
+     */
+    default int parallelism() {
+        return 1;
+    }
+
+    /**
+     * The {@link ExecutorService} where CSV file pairs are compared in bulk comparison.
+     *
+     * @return An {@link ExecutorService}, or {@code null} to use an internal one based on {@link #parallelism()}.
+     */
+    @Nullable
+    default ExecutorService executor() {
+        return null;
+    }
+
+    /**
+     * Memory budget in bytes for comparing with external sort-merge, shared by both CSV files.
+     *
+     * @return The memory budget, or {@code 0} to compare with an in-memory hash index of the expected CSV file.
+     */
+    default long memoryBudget() {
+        return 0;
+    }
+
+    /**
+     * Whether columnIds of CSV files aren't unique, rows having the same columnIds are paired one to one.
+     *
+     * @return Indicate to keep all rows of duplicated columnIds, instead of the last expected row.
+     */
+    default boolean duplicateKeys() {
+        return false;
+    }
+
+    /**
+     * Whether both CSV files are already sorted by columnId in {@link #keyOrder()}.
+     *
+     * @return Indicate to compare both CSV files in a single pass without building any index.
+     */
+    default boolean presorted() {
+        return false;
+    }
+
+    /**
+     * The order of columnId values when comparing with sort-merge.
+     *
+     * @return A {@link Comparator} of columnId values.
+     */
+    @Nonnull
+    default Comparator<String> keyOrder() {
+        return Comparator.naturalOrder();
+    }
+
+    /**
+     * Whether bytes of both CSV files are compared before parsing them.
+     *
+     * @return Indicate to short-circuit comparison of byte-identical CSV files.
+     */
+    default boolean byteCheck() {
+        return false;
+    }
+
+    /**
+     * Number of partitions a single pair of CSV files is split into and compared in parallel.
+     *
+     * @return The partition count.
+     */
+    default int partitions() {
+        return 1;
+    }
+
+    /**
+     * Whether visitors accept callbacks from multiple threads at the same time.
+     *
+     * @return Indicate to deliver callbacks of partitioned comparison concurrently.
+     */
+    default boolean concurrentVisitors() {
+        return false;
+    }
+
+    /**
+     * The directory where off-heap indexes of expected CSV files are persisted.
+     *
+     * @return The index directory, or {@code null} to index expected CSV files on the heap.
+     */
+    @Nullable
+    default Path indexDir() {
+        return null;
+    }
+
+    /**
+     * The manifest file of bulk comparison, where states of CSV files and results of file pairs are persisted.
+     *
+     * @return The manifest file, or {@code null} to compare all file pairs.
+     */
+    @Nullable
+    default Path manifest() {
+        return null;
+    }
+
+    /**
+     * The receiver of metrics of comparisons.
+     *
+     * @return The {@link CsvComparisonMetrics}, comparisons aren't measured by {@link CsvComparisonMetrics#noop()}.
+     */
+    @Nonnull
+    default CsvComparisonMetrics metrics() {
+        return CsvComparisonMetrics.noop();
+    }
+
+    /**
+     * The receiver of progress of comparisons.
+     *
+     * @return The {@link CsvComparisonProgress}, or {@code null} to not report progress.
+     */
+    @Nullable
+    default CsvComparisonProgress progress() {
+        return null;
+    }
+
+    /**
+     * The token to cancel comparisons.
+     *
+     * @return The {@link CsvCancellation}, or {@code null} when comparisons can't be cancelled.
+     */
+    @Nullable
+    default CsvCancellation cancellation() {
+        return null;
+    }
+
+    /**
+     * Whether comparisons stop at the first difference.
+     *
+     * @return Indicate to only check whether CSV files are different.
+     */
+    default boolean failFast() {
+        return false;
+    }
+
     //===============================================================================//
 
     /**
@@ -80,20 +267,56 @@ public interface CsvComparisonOptions {
      */
     final class Builder {
         private final CsvParserSettings parserSettings;
+        private List<?> selectedColumns;
         private Charset charset;
-        private Object columnId;
+        private List<?> columnIds;
         private CsvComparisonResultOptions resultOptions;
+        private int parallelism;
+        private ExecutorService executor;
+        private long memoryBudget;
+        private boolean duplicateKeys;
+        private boolean presorted;
+        private Comparator<String> keyOrder;
+        private boolean byteCheck;
+        private int partitions;
+        private boolean concurrentVisitors;
+        private Path indexDir;
+        private Path manifest;
+        private CsvComparisonMetrics metrics;
+        private CsvComparisonProgress progress;
+        private CsvCancellation cancellation;
+        private boolean failFast;
 
         private Builder() {
             this.charset = null;
-            this.columnId = null;
+            this.columnIds = Collections.emptyList();
             this.parserSettings = new CsvParserSettings();
             this.parserSettings.setHeaderExtractionEnabled(true);
+            this.selectedColumns = null;
             this.resultOptions = CsvComparisonResultOptions.defaults();
+            this.parallelism = 1;
+            this.executor = null;
+            this.memoryBudget = 0;
+            this.duplicateKeys = false;
+            this.presorted = false;
+            this.keyOrder = Comparator.naturalOrder();
+            this.byteCheck = false;
+            this.partitions = 1;
+            this.concurrentVisitors = false;
+            this.indexDir = null;
+            this.manifest = null;
+            this.metrics = CsvComparisonMetrics.noop();
+            this.progress = null;
+            this.cancellation = null;
+            this.failFast = false;
         }
 
         /**
-         * Set charset to read and writing CSV files.
+         * Set charset to read and writing CSV files.<br>
+         * Charset is detected when it's not set, from the first 64 KB of CSV, a byte order mark or valid UTF-8 is taken as is.
+         * A CSV file whose first 64 KB is 7-bit or invalid UTF-8 is detected with the whole file.
+         * Compressed CSV files and CSV sources are only detected from the first 64 KB, they should set charset
+         * when non UTF-8 characters appear after 7-bit content, otherwise UTF-8 or the default charset is used.
          *
          * @param charset The {@code Charset} for reading and writing CSV files.<br>
          *                <a href="https://docs.oracle.com/javase/8/docs/technotes/guides/intl/encoding.doc.html">encoding</a>
@@ -136,6 +359,7 @@ public interface CsvComparisonOptions {
         public Builder selectColumns(@Nonnull String... names) {
             checkNotNull(names, "ColumnNames cannot not be null");
             this.parserSettings.selectFields(names);
+            this.selectedColumns = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(names)));
             return this;
         }
 
@@ -148,6 +372,7 @@ public interface CsvComparisonOptions {
         public Builder selectColumns(@Nonnull Integer... indexes) {
             checkNotNull(indexes, "ColumnIndexes cannot not be null");
             this.parserSettings.selectIndexes(indexes);
+            this.selectedColumns = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(indexes)));
             return this;
         }
 
@@ -162,7 +387,7 @@ public interface CsvComparisonOptions {
         public Builder selectColumnId(@Nonnull String name) {
             checkNotNull(name, "ColumnId cannot not be null");
             checkArgument(!name.isEmpty(), "ColumnId cannot not be empty");
-            this.columnId = name;
+            this.columnIds = Collections.singletonList(name);
             return this;
         }
 
@@ -176,7 +401,43 @@ public interface CsvComparisonOptions {
          */
         public Builder selectColumnId(int index) {
             checkArgument(index > -1, "ColumnId should be greater -1");
-            this.columnId = index;
+            this.columnIds = Collections.singletonList(index);
+            return this;
+        }
+
+        /**
+         * Set column names where have data fields unique together, e.g. a composite primary key.<br>
+         * Rows are keyed by cells of all these columns, without concatenating them into a synthetic column.
+         *
+         * @param names Indicate which are identity column names which data fields are unique in a row together.<br>
+         *              You have to use {@link #selectColumns(String...)} first when columns are selected.<br>
+         *              e.g. {@code #selectColumnIds("firstname", "lastname")}.
+         * @return The current {@link Builder}.
+         */
+        public Builder selectColumnIds(@Nonnull String... names) {
+            checkNotNull(names, "ColumnIds cannot not be null");
+            checkArgument(names.length > 0, "ColumnIds cannot not be empty");
+            checkArgument(Arrays.stream(names).allMatch(name -> name != null && !name.isEmpty()), "ColumnId cannot not be empty");
+            checkArgument(Arrays.stream(names).distinct().count() == names.length, "ColumnIds should be distinct");
+            this.columnIds = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(names)));
+            return this;
+        }
+
+        /**
+         * Set column indexes where have data fields unique together, e.g. a composite primary key.<br>
+         * Rows are keyed by cells of all these columns, without concatenating them into a synthetic column.
+         *
+         * @param indexes Indicate which are identity column indexes which data fields are unique in a row together.<br>
+         *                You have to use {@link #selectColumns(Integer...)} first when columns are selected.<br>
+         *                e.g. #selectColumnIds(1, 2).
+         * @return The current {@link Builder}.
+         */
+        public Builder selectColumnIds(@Nonnull Integer... indexes) {
+            checkNotNull(indexes, "ColumnIds cannot not be null");
+            checkArgument(indexes.length > 0, "ColumnIds cannot not be empty");
+            checkArgument(Arrays.stream(indexes).allMatch(index -> index != null && index > -1), "ColumnId should be greater -1");
+            checkArgument(Arrays.stream(indexes).distinct().count() == indexes.length, "ColumnIds should be distinct");
+            this.columnIds = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(indexes)));
             return this;
         }
 
@@ -192,11 +453,233 @@ public interface CsvComparisonOptions {
         }
 
         /**
-         * Build {@link CsvComparisonOptions} based on {@link Builder}.
+         * Set number of CSV file pairs are compared concurrently in bulk comparison.<br>
+         * Each file pair is still compared on a single thread, so visitor callbacks of a pair are never interleaved.
+         *
+         * @param parallelism The parallelism level. Default to {@code 1}, file pairs are compared one after another.
+         * @return The current {@link Builder}.
+         */
+        public Builder parallelism(int parallelism) {
+            checkArgument(parallelism > 0, "Parallelism should be greater 0");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Set {@link ExecutorService} where CSV file pairs are compared in bulk comparison.<br>
+         * The {@link ExecutorService} is owned by caller, {@link CsvComparator} never shuts it down.
+         *
+         * @param executor The {@link ExecutorService} runs comparisons. It takes precedence over {@link #parallelism(int)}.
+         * @return The current {@link Builder}.
+         */
+        public Builder executor(@Nullable ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Compare with external sort-merge for CSV files larger than the heap.<br>
+         * Both CSV files are sorted by columnId into run files on disk, then merged in a single pass.
+         * Rows are visited in columnId order instead of the actual CSV file order.<br>
+         * The budget only bounds rows buffered for sorting, each CSV file gets half of it.
+         * Rows retained in {@link CsvComparisonResult} aren't counted: the default {@link CsvComparisonResultOptions.Retention#FULL}
+         * keeps every compared row on the heap and defeats the bound, use {@link CsvComparisonResultOptions.Retention#COUNTS}
+         * or {@link CsvComparisonResultOptions.Retention#SAMPLE} with it.
+         *
+         * @param bytes Approximate heap size rows of both CSV files can occupy before spilling to disk.
+         * @return The current {@link Builder}.
+         */
+        public Builder memoryBudget(long bytes) {
+            checkArgument(bytes > 0, "Memory budget should be greater 0");
+            this.memoryBudget = bytes;
+            return this;
+        }
+
+        /**
+         * Compare CSV files whose columnIds aren't unique, e.g. feeds without a primary key.<br>
+         * By default, the last expected row wins when columnIds are duplicated,
+         * and actual rows of the same columnIds are reported as inserted.<br>
+         * With it, rows having the same columnIds are paired one to one, rows having the same cells first.
+         * Rows which are left unpaired while their columnIds are paired in both CSV files are reported as
+         * {@link CsvComparisonResultOptions.Category#DUPLICATED duplicated}, instead of deleted or inserted.
+         * Rows of unique columnIds are still indexed without any extra allocation.
+         *
+         * @return The current {@link Builder}.
+         */
+        public Builder duplicateKeys() {
+            this.duplicateKeys = true;
+            return this;
+        }
+
+        /**
+         * Declare both CSV files are already sorted by columnId, e.g. exported from a database ordered by primary key.<br>
+         * Both CSV files are read and compared row by row in a single pass, only current rows are held in memory.<br>
+         * The comparison fails when a columnId value is out of {@link #keyOrder(Comparator)}.
+         *
+         * @return The current {@link Builder}.
+         */
+        public Builder presorted() {
+            this.presorted = true;
+            return this;
+        }
+
+        /**
+         * Set the order of columnId values when comparing with sort-merge.
+         *
+         * @param keyOrder The {@link Comparator} of columnId values. Default to natural order of {@link String}.<br>
+         *                 Empty columnId values are always ordered first.
+         *                 Composite columnIds are ordered by their values one after another.
+         * @return The current {@link Builder}.
+         */
+        public Builder keyOrder(@Nonnull Comparator<String> keyOrder) {
+            this.keyOrder = checkNotNull(keyOrder, "KeyOrder cannot not be null");
+            return this;
+        }
+
+        /**
+         * Compare bytes of both CSV files before parsing them.<br>
+         * Byte-identical CSV files are reported as all rows kept without building any index.
+         * Rows are only parsed when {@link CsvComparisonResultOptions#retention()} or a visitor needs kept rows, see {@link CsvComparisonVisitor#visitsKeptRows()},
+         * so it pays off most with {@link CsvComparisonResultOptions.Retention#COUNTS} and without {@link CsvComparisonResultOptions.Category#KEPT} in output files.
+         *
+         * @return The current {@link Builder}.
+         */
+        public Builder byteCheck() {
+            this.byteCheck = true;
+            return this;
+        }
+
+        /**
+         * Split a single pair of CSV files into partitions by hash of columnId and compare partitions in parallel.<br>
+         * Rows of both CSV files are held in memory. Rows are visited partition by partition
+         * instead of the actual CSV file order.
+         *
+         * @param partitions The partition count. Default to {@code 1}, CSV files are compared on a single thread.
+         * @return The current {@link Builder}.
+         */
+        public Builder partitions(int partitions) {
+            checkArgument(partitions > 0, "Partitions should be greater 0");
+            this.partitions = partitions;
+            return this;
+        }
+
+        /**
+         * Deliver callbacks of partitioned comparison to visitors concurrently.<br>
+         * By default, callbacks come from multiple threads but one at a time.
+         * Only use it when all visitors are thread-safe.
+         *
+         * @return The current {@link Builder}.
+         */
+        public Builder concurrentVisitors() {
+            this.concurrentVisitors = true;
+            return this;
+        }
+
+        /**
+         * Index expected CSV files into memory-mapped files instead of the heap, for very large baselines.<br>
+         * An index file is built once per expected CSV file and reused by later comparisons
+         * until the expected CSV file or the parsing options change.
+         * It takes precedence over {@link #partitions(int)}.
+         *
+         * @param indexDir The directory where index files are persisted.
+         * @return The current {@link Builder}.
+         */
+        public Builder indexDir(@Nullable Path indexDir) {
+            this.indexDir = indexDir;
+            return this;
+        }
+
+        /**
+         * Compare 2 CSV directories incrementally.<br>
+         * Size, modified time and content hash of CSV files are persisted with the result of each file pair.
+         * A file pair whose files are unchanged since the last bulk comparison isn't compared again,
+         * its persisted result is reused. A reused result holds counts of rows only, and visitors aren't called.
+         *
+         * @param manifest The manifest file.
+         * @return The current {@link Builder}.
+         */
+        public Builder manifest(@Nullable Path manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        /**
+         * Measure comparisons and report metrics to {@link CsvComparisonMetrics}.<br>
+         * Metrics are reported per comparison, and summed per bulk comparison.
+         *
+         * @param metrics The {@link CsvComparisonMetrics}. Default to {@link CsvComparisonMetrics#noop()}.
+         * @return The current {@link Builder}.
+         */
+        public Builder metrics(@Nonnull CsvComparisonMetrics metrics) {
+            this.metrics = checkNotNull(metrics, "Metrics cannot not be null");
+            return this;
+        }
+
+        /**
+         * Report progress of reading CSV to {@link CsvComparisonProgress}, per phase of comparison.
+         *
+         * @param progress The {@link CsvComparisonProgress}.
+         * @return The current {@link Builder}.
+         */
+        public Builder progress(@Nullable CsvComparisonProgress progress) {
+            this.progress = progress;
+            return this;
+        }
+
+        /**
+         * Make comparisons cancellable by {@link CsvCancellation#cancel()}.
+         *
+         * @param cancellation The {@link CsvCancellation}.
+         * @return The current {@link Builder}.
+         */
+        public Builder cancellation(@Nullable CsvCancellation cancellation) {
+            this.cancellation = cancellation;
+            return this;
+        }
+
+        /**
+         * Stop comparisons at the first difference, e.g. for checks which only need {@link CsvComparisonResult#hasDiff()}.<br>
+         * Actual CSV is read until the first inserted, modified or duplicated row. When all actual rows are paired,
+         * deletion is detected by number of paired rows against size of the expected index.<br>
+         * The result is retained as {@link CsvComparisonResultOptions.Retention#NONE}, output files aren't written
+         * and visitors don't receive rows. A bulk comparison stops at the first different file pair.
+         *
+         * @return The current {@link Builder}.
+         */
+        public Builder failFast() {
+            this.failFast = true;
+            return this;
+        }
+
+        /**
+         * Build {@link CsvComparisonOptions} based on {@link Builder}.<br>
+         * Changes of {@link Builder} after building don't affect the built {@link CsvComparisonOptions}.
          *
          * @return A {@link CsvComparisonOptions}.
          */
         public CsvComparisonOptions build() {
+            // Snapshot of current values, built options never change
+            CsvParserSettings parserSettings = this.parserSettings.clone();
+            List<?> selectedColumns = this.selectedColumns;
+            Charset charset = this.charset;
+            List<?> columnIds = this.columnIds;
+            CsvComparisonResultOptions resultOptions = this.resultOptions;
+            int parallelism = this.parallelism;
+            ExecutorService executor = this.executor;
+            long memoryBudget = this.memoryBudget;
+            boolean duplicateKeys = this.duplicateKeys;
+            boolean presorted = this.presorted;
+            Comparator<String> keyOrder = this.keyOrder;
+            boolean byteCheck = this.byteCheck;
+            int partitions = this.partitions;
+            boolean concurrentVisitors = this.concurrentVisitors;
+            Path indexDir = this.indexDir;
+            Path manifest = this.manifest;
+            CsvComparisonMetrics metrics = this.metrics;
+            CsvComparisonProgress progress = this.progress;
+            CsvCancellation cancellation = this.cancellation;
+            boolean failFast = this.failFast;
+
             return new CsvComparisonOptions() {
                 @Override
                 public Charset charset() {
@@ -205,13 +688,24 @@ public interface CsvComparisonOptions {
 
                 @Override
                 public Object columnId() {
-                    return columnId;
+                    return columnIds.isEmpty() ? null : columnIds.get(0);
+                }
+
+                @Nonnull
+                @Override
+                public List<?> columnIds() {
+                    return columnIds;
                 }
 
                 @Nonnull
                 @Override
                 public CsvParserSettings parserSettings() {
-                    return parserSettings;
+                    return parserSettings.clone();
+                }
+
+                @Override
+                public List<?> selectedColumns() {
+                    return selectedColumns;
                 }
 
                 @Nonnull
@@ -219,6 +713,83 @@ public interface CsvComparisonOptions {
                 public CsvComparisonResultOptions resultOptions() {
                     return resultOptions;
                 }
+
+                @Override
+                public int parallelism() {
+                    return parallelism;
+                }
+
+                @Override
+                public ExecutorService executor() {
+                    return executor;
+                }
+
+                @Override
+                public long memoryBudget() {
+                    return memoryBudget;
+                }
+
+                @Override
+                public boolean duplicateKeys() {
+                    return duplicateKeys;
+                }
+
+                @Override
+                public boolean presorted() {
+                    return presorted;
+                }
+
+                @Nonnull
+                @Override
+                public Comparator<String> keyOrder() {
+                    return keyOrder;
+                }
+
+                @Override
+                public boolean byteCheck() {
+                    return byteCheck;
+                }
+
+                @Override
+                public int partitions() {
+                    return partitions;
+                }
+
+                @Override
+                public boolean concurrentVisitors() {
+                    return concurrentVisitors;
+                }
+
+                @Override
+                public Path indexDir() {
+                    return indexDir;
+                }
+
+                @Override
+                public Path manifest() {
+                    return manifest;
+                }
+
+                @Nonnull
+                @Override
+                public CsvComparisonMetrics metrics() {
+                    return metrics;
+                }
+
+                @Override
+                public CsvComparisonProgress progress() {
+                    return progress;
+                }
+
+                @Override
+                public CsvCancellation cancellation() {
+                    return cancellation;
+                }
+
+                @Override
+                public boolean failFast() {
+                    return failFast;
+                }
             };
         }
     }
@@ -1,19 +1,15 @@
 package com.github.ngoanh2n.csv;
 
 import com.github.ngoanh2n.Commons;
-import com.univocity.parsers.csv.CsvWriter;
-import com.univocity.parsers.csv.CsvWriterSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Set;
 
 /**
- * A default implementation for {@link CsvComparisonVisitor} for writing output files.<br><br>
+ * A default implementation for {@link CsvComparisonVisitor} for writing output files.<br>
+ * Rows are delivered in batches and written by a dedicated thread, errors of writing are thrown when comparison finished.<br><br>
  *
  * <em>Repository:</em>
  * <ul>
@@ -26,12 +22,14 @@ import java.util.List;
  */
 public class CsvComparisonOutput implements CsvComparisonVisitor {
     private final static Logger log = LoggerFactory.getLogger(CsvComparisonOutput.class);
-    private String dir;
-    private CsvWriter keptWriter;
-    private CsvWriter deletedWriter;
-    private CsvWriter insertedWriter;
-    private CsvWriter modifiedWriter;
-    private CsvWriterSettings settings;
+    private static String lastTimestamp;
+    private static int sequence;
+    private CsvOutputWriter writer;
+    private boolean writeKept;
+    private boolean writeDeleted;
+    private boolean writeInserted;
+    private boolean writeModified;
+    private boolean writeDuplicated;
 
     //-------------------------------------------------------------------------------//
 
@@ -44,9 +42,31 @@ public class CsvComparisonOutput implements CsvComparisonVisitor {
      * {@inheritDoc}
      */
     @Override
-    public void comparisonStarted(CsvComparisonOptions options, File exp, File act) {
-        dir = Commons.timestamp();
-        settings = new CsvWriterSettings();
+    public void comparisonStarted(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        Set<CsvComparisonResultOptions.Category> outputs = options.resultOptions().outputs();
+        writeKept = outputs.contains(CsvComparisonResultOptions.Category.KEPT);
+        writeDeleted = outputs.contains(CsvComparisonResultOptions.Category.DELETED);
+        writeInserted = outputs.contains(CsvComparisonResultOptions.Category.INSERTED);
+        writeModified = outputs.contains(CsvComparisonResultOptions.Category.MODIFIED);
+        writeDuplicated = outputs.contains(CsvComparisonResultOptions.Category.DUPLICATED);
+        writer = new CsvOutputWriter(options.resultOptions().location().resolve(getDir()), options);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean batchRows() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * Kept rows are only needed when {@link CsvComparisonResultOptions.Category#KEPT} is written to output files.
+     */
+    @Override
+    public boolean visitsKeptRows() {
+        return writeKept;
     }
 
     /**
@@ -54,9 +74,10 @@ public class CsvComparisonOutput implements CsvComparisonVisitor {
      */
     @Override
     public void rowKept(CsvComparisonOptions options, String[] headers, String[] row) {
-        keptWriter = writeHeaders(headers, options, keptWriter, "kept.csv");
-        keptWriter.writeRow(row);
-        log.debug("{}", Arrays.toString(row));
+        if (writeKept) {
+            writer.write(CsvComparisonResultOptions.Category.KEPT.getFileName(), headers, row);
+        }
+        logRow(row);
     }
 
     /**
@@ -64,9 +85,10 @@ public class CsvComparisonOutput implements CsvComparisonVisitor {
      */
     @Override
     public void rowDeleted(CsvComparisonOptions options, String[] headers, String[] row) {
-        deletedWriter = writeHeaders(headers, options, deletedWriter, "deleted.csv");
-        deletedWriter.writeRow(row);
-        log.debug("{}", Arrays.toString(row));
+        if (writeDeleted) {
+            writer.write(CsvComparisonResultOptions.Category.DELETED.getFileName(), headers, row);
+        }
+        logRow(row);
     }
 
     /**
@@ -74,19 +96,87 @@ public class CsvComparisonOutput implements CsvComparisonVisitor {
      */
     @Override
     public void rowInserted(CsvComparisonOptions options, String[] headers, String[] row) {
-        insertedWriter = writeHeaders(headers, options, insertedWriter, "inserted.csv");
-        insertedWriter.writeRow(row);
-        log.debug("{}", Arrays.toString(row));
+        if (writeInserted) {
+            writer.write(CsvComparisonResultOptions.Category.INSERTED.getFileName(), headers, row);
+        }
+        logRow(row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowModified(CsvComparisonOptions options, String[] headers, String[] row, CellDiffs diffs) {
+        if (writeModified) {
+            writer.write(CsvComparisonResultOptions.Category.MODIFIED.getFileName(), headers, row);
+        }
+        logRow(row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowDuplicated(CsvComparisonOptions options, String[] headers, String[] row) {
+        if (writeDuplicated) {
+            writer.write(CsvComparisonResultOptions.Category.DUPLICATED.getFileName(), headers, row);
+        }
+        logRow(row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsKept(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        if (writeKept) {
+            writer.write(CsvComparisonResultOptions.Category.KEPT.getFileName(), headers, rows, count);
+        }
+        logRows(rows, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsDeleted(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        if (writeDeleted) {
+            writer.write(CsvComparisonResultOptions.Category.DELETED.getFileName(), headers, rows, count);
+        }
+        logRows(rows, count);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void rowModified(CsvComparisonOptions options, String[] headers, String[] row, List<HashMap<String, String>> diffs) {
-        modifiedWriter = writeHeaders(headers, options, modifiedWriter, "modified.csv");
-        modifiedWriter.writeRow(row);
-        log.debug("{}", Arrays.toString(row));
+    public void rowsInserted(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        if (writeInserted) {
+            writer.write(CsvComparisonResultOptions.Category.INSERTED.getFileName(), headers, rows, count);
+        }
+        logRows(rows, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsModified(CsvComparisonOptions options, String[] headers, String[][] rows, CellDiffs[] diffs, int count) {
+        if (writeModified) {
+            writer.write(CsvComparisonResultOptions.Category.MODIFIED.getFileName(), headers, rows, count);
+        }
+        logRows(rows, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rowsDuplicated(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        if (writeDuplicated) {
+            writer.write(CsvComparisonResultOptions.Category.DUPLICATED.getFileName(), headers, rows, count);
+        }
+        logRows(rows, count);
     }
 
     //-------------------------------------------------------------------------------//
@@ -95,25 +185,53 @@ public class CsvComparisonOutput implements CsvComparisonVisitor {
      * {@inheritDoc}
      */
     @Override
-    public void comparisonFinished(CsvComparisonOptions options, File exp, File act, CsvComparisonResult result) {
-        if (keptWriter != null) keptWriter.close();
-        if (deletedWriter != null) deletedWriter.close();
-        if (insertedWriter != null) insertedWriter.close();
-        if (modifiedWriter != null) modifiedWriter.close();
+    public void comparisonFinished(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonResult result) {
+        writer.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void comparisonCancelled(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        writer.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void comparisonFailed(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, Throwable error) {
+        if (writer != null) {
+            writer.abort();
+        }
     }
 
     //-------------------------------------------------------------------------------//
 
-    private CsvWriter writeHeaders(String[] headers, CsvComparisonOptions options, CsvWriter writer, String fileName) {
-        if (writer == null) {
-            Path location = options.resultOptions().location().resolve(dir);
-            File file = Commons.createDir(location).resolve(fileName).toFile();
-            writer = new CsvWriter(file, options.charset(), settings);
+    private static synchronized String getDir() {
+        String timestamp = Commons.timestamp();
+
+        if (timestamp.equals(lastTimestamp)) {
+            // Comparisons started within the same millisecond (bulk comparison in parallel)
+            return timestamp + "." + (++sequence);
+        }
+        lastTimestamp = timestamp;
+        sequence = 0;
+        return timestamp;
+    }
+
+    private static void logRow(String[] row) {
+        if (log.isDebugEnabled()) {
+            log.debug("{}", Arrays.toString(row));
+        }
+    }
 
-            if (headers.length > 0 && options.resultOptions().includeHeaders()) {
-                writer.writeRow(headers);
+    private static void logRows(String[][] rows, int count) {
+        if (log.isDebugEnabled()) {
+            for (int index = 0; index < count; index++) {
+                log.debug("{}", Arrays.toString(rows[index]));
             }
         }
-        return writer;
     }
-}
\ No newline at end of file
+}
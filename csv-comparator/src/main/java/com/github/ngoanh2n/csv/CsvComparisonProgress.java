@@ -0,0 +1,45 @@
+package com.github.ngoanh2n.csv;
+
+/**
+ * Receive progress of comparisons, set to {@link CsvComparisonOptions.Builder#progress(CsvComparisonProgress)}.<br>
+ * Progress is reported every 16384 rows and when a CSV is read to the end.
+ * It's called from the comparing thread, keep it fast.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+@FunctionalInterface
+public interface CsvComparisonProgress {
+    /**
+     * Callback while a CSV of comparison is read.
+     *
+     * @param exp   The expected CSV source.
+     * @param act   The actual CSV source.
+     * @param phase The {@link Phase} of comparison.
+     * @param rows  The number of rows are read in the phase.
+     * @param bytes The number of bytes are read in the phase, it's 0 when CSV is read from a {@link java.io.Reader}.
+     */
+    void progressed(CsvComparisonSource exp, CsvComparisonSource act, Phase phase, long rows, long bytes);
+
+    //===============================================================================//
+
+    /**
+     * Phase of comparison, by the CSV is read.
+     */
+    enum Phase {
+        /**
+         * Reading expected CSV, rows are indexed, sorted or partitioned.
+         */
+        EXP,
+        /**
+         * Reading actual CSV, rows are probed, sorted or partitioned.
+         */
+        ACT
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.ngoanh2n.csv;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -44,31 +45,102 @@ public interface CsvComparisonResult {
      */
     boolean hasModification();
 
+    /**
+     * Whether there is any row of a duplicated key which has no counterpart in the other CSV file.
+     *
+     * @return Indicate there is any row duplicated or not.
+     * @see CsvComparisonOptions#duplicateKeys()
+     */
+    default boolean hasDuplication() {
+        return !getDuplicatedRows().isEmpty();
+    }
+
     /**
      * Get all kept rows in the expected CSV file against to actual CSV file.
      *
-     * @return Rows were kept.
+     * @return Rows were kept. Depends on {@link CsvComparisonResultOptions#retention()}, it may be empty or a sample.
      */
     List<String[]> getKeptRows();
 
     /**
      * Get all deleted rows in the expected CSV file against to actual CSV file.
      *
-     * @return Rows were deleted.
+     * @return Rows were deleted. Depends on {@link CsvComparisonResultOptions#retention()}, it may be empty or a sample.
      */
     List<String[]> getDeletedRows();
 
     /**
      * Get all inserted rows in the expected CSV file against to actual CSV file.
      *
-     * @return Rows were inserted.
+     * @return Rows were inserted. Depends on {@link CsvComparisonResultOptions#retention()}, it may be empty or a sample.
      */
     List<String[]> getInsertedRows();
 
     /**
      * Get all modified rows in the expected CSV file against to actual CSV file.
      *
-     * @return Rows were modified.
+     * @return Rows were modified. Depends on {@link CsvComparisonResultOptions#retention()}, it may be empty or a sample.
      */
     List<String[]> getModifiedRows();
+
+    /**
+     * Get all rows of duplicated keys which have no counterpart in the other CSV file.<br>
+     * They are rows of either expected CSV file or actual CSV file.
+     *
+     * @return Rows were duplicated. Depends on {@link CsvComparisonResultOptions#retention()}, it may be empty or a sample.
+     * @see CsvComparisonOptions#duplicateKeys()
+     */
+    default List<String[]> getDuplicatedRows() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get number of kept rows in the expected CSV file against to actual CSV file.
+     *
+     * @return Count of rows were kept, or {@code -1} when counts are not retained.
+     * @see CsvComparisonResultOptions#retention()
+     */
+    default long getKeptCount() {
+        return getKeptRows().size();
+    }
+
+    /**
+     * Get number of deleted rows in the expected CSV file against to actual CSV file.
+     *
+     * @return Count of rows were deleted, or {@code -1} when counts are not retained.
+     * @see CsvComparisonResultOptions#retention()
+     */
+    default long getDeletedCount() {
+        return getDeletedRows().size();
+    }
+
+    /**
+     * Get number of inserted rows in the expected CSV file against to actual CSV file.
+     *
+     * @return Count of rows were inserted, or {@code -1} when counts are not retained.
+     * @see CsvComparisonResultOptions#retention()
+     */
+    default long getInsertedCount() {
+        return getInsertedRows().size();
+    }
+
+    /**
+     * Get number of modified rows in the expected CSV file against to actual CSV file.
+     *
+     * @return Count of rows were modified, or {@code -1} when counts are not retained.
+     * @see CsvComparisonResultOptions#retention()
+     */
+    default long getModifiedCount() {
+        return getModifiedRows().size();
+    }
+
+    /**
+     * Get number of rows of duplicated keys which have no counterpart in the other CSV file.
+     *
+     * @return Count of rows were duplicated, or {@code -1} when counts are not retained.
+     * @see CsvComparisonResultOptions#retention()
+     */
+    default long getDuplicatedCount() {
+        return getDuplicatedRows().size();
+    }
 }
@@ -3,11 +3,16 @@ package com.github.ngoanh2n.csv;
 import javax.annotation.Nonnull;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Adjust behaviors of {@link CsvComparisonResult} and {@link CsvComparisonOutput}.<br><br>
+ * Adjust behaviors of {@link CsvComparisonResult} and {@link CsvComparisonOutput}.<br>
+ * Options are immutable once they're built.<br><br>
  *
  * <em>Repository:</em>
  * <ul>
@@ -54,6 +59,26 @@ public interface CsvComparisonResultOptions {
      */
     boolean writeOutputs();
 
+    /**
+     * Which categories of rows are written to output files when {@link #writeOutputs()} is enabled.
+     *
+     * @return The set of {@link Category}.
+     */
+    @Nonnull
+    default Set<Category> outputs() {
+        return Collections.unmodifiableSet(EnumSet.allOf(Category.class));
+    }
+
+    /**
+     * How output files are compressed.
+     *
+     * @return A {@link Compression}.
+     */
+    @Nonnull
+    default Compression compression() {
+        return Compression.NONE;
+    }
+
     /**
      * Whether included headers row in output files.
      *
@@ -61,6 +86,124 @@ public interface CsvComparisonResultOptions {
      */
     boolean includeHeaders();
 
+    /**
+     * How many rows and counts are retained in {@link CsvComparisonResult}.
+     *
+     * @return A {@link Retention}.
+     */
+    @Nonnull
+    default Retention retention() {
+        return Retention.FULL;
+    }
+
+    /**
+     * Maximum number of rows are retained per category when {@link #retention()} is {@link Retention#SAMPLE}.
+     *
+     * @return The sample size.
+     */
+    default int sampleSize() {
+        return 100;
+    }
+
+    //===============================================================================//
+
+    /**
+     * Retention policy of rows and counts in {@link CsvComparisonResult}.
+     */
+    enum Retention {
+        /**
+         * Retain only whether there is any difference. Rows are not retained, counts are {@code -1}.
+         */
+        NONE,
+        /**
+         * Retain counts per category. Rows are not retained.
+         */
+        COUNTS,
+        /**
+         * Retain counts and the first {@link #sampleSize()} rows per category.
+         */
+        SAMPLE,
+        /**
+         * Retain counts and all rows per category.
+         */
+        FULL
+    }
+
+    //===============================================================================//
+
+    /**
+     * Category of rows in {@link CsvComparisonResult} and its output file.
+     */
+    enum Category {
+        /**
+         * Rows are written to {@code kept.csv}.
+         */
+        KEPT("kept.csv"),
+        /**
+         * Rows are written to {@code deleted.csv}.
+         */
+        DELETED("deleted.csv"),
+        /**
+         * Rows are written to {@code inserted.csv}.
+         */
+        INSERTED("inserted.csv"),
+        /**
+         * Rows are written to {@code modified.csv}.
+         */
+        MODIFIED("modified.csv"),
+        /**
+         * Rows are written to {@code duplicated.csv}.
+         * There are only such rows when {@link CsvComparisonOptions#duplicateKeys()} is enabled.
+         */
+        DUPLICATED("duplicated.csv");
+
+        private final String fileName;
+
+        Category(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * Name of output file of this category, without extension of {@link Compression}.
+         *
+         * @return The file name.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    //===============================================================================//
+
+    /**
+     * Compression of output files.
+     */
+    enum Compression {
+        /**
+         * Output files are written as plain CSV.
+         */
+        NONE(""),
+        /**
+         * Output files are streamed through GZIP, {@code .gz} is appended to file names.
+         */
+        GZIP(".gz");
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Extension is appended to names of output files.
+         *
+         * @return The extension, or an empty string.
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
     //===============================================================================//
 
     /**
@@ -69,12 +212,20 @@ public interface CsvComparisonResultOptions {
     final class Builder {
         private Path location;
         private boolean writeOutputs;
+        private Set<Category> outputs;
+        private Compression compression;
         private boolean includeHeaders;
+        private Retention retention;
+        private int sampleSize;
 
         private Builder() {
             this.location = Paths.get("build/ngoanh2n/csv");
             this.writeOutputs = true;
+            this.outputs = Collections.unmodifiableSet(EnumSet.allOf(Category.class));
+            this.compression = Compression.NONE;
             this.includeHeaders = true;
+            this.retention = Retention.FULL;
+            this.sampleSize = 100;
         }
 
         /**
@@ -99,6 +250,33 @@ public interface CsvComparisonResultOptions {
             return this;
         }
 
+        /**
+         * Set which categories of rows are written to output files.<br>
+         * E.g. skip {@code kept.csv} which is usually almost a copy of actual CSV file:
+         * {@code outputs(Category.DELETED, Category.INSERTED, Category.MODIFIED)}.
+         *
+         * @param categories The categories. Default to all categories.
+         * @return The current {@link CsvComparisonResultOptions.Builder}.
+         */
+        public Builder outputs(@Nonnull Category... categories) {
+            checkNotNull(categories, "categories cannot not be null");
+            Set<Category> set = EnumSet.noneOf(Category.class);
+            Collections.addAll(set, categories);
+            this.outputs = Collections.unmodifiableSet(set);
+            return this;
+        }
+
+        /**
+         * Set how output files are compressed.
+         *
+         * @param compression The {@link Compression}. Default to {@link Compression#NONE}.
+         * @return The current {@link CsvComparisonResultOptions.Builder}.
+         */
+        public Builder compression(@Nonnull Compression compression) {
+            this.compression = checkNotNull(compression, "compression cannot not be null");
+            return this;
+        }
+
         /**
          * Indicate which includes headers row to comparison result output files.
          *
@@ -110,12 +288,46 @@ public interface CsvComparisonResultOptions {
             return this;
         }
 
+        /**
+         * Set how many rows and counts are retained in {@link CsvComparisonResult}.<br>
+         * Use {@link Retention#COUNTS} to compare large and mostly equal CSV files without holding rows in memory,
+         * e.g. with {@link CsvComparisonOptions.Builder#memoryBudget(long)}.
+         *
+         * @param retention The {@link Retention}. Default to {@link Retention#FULL}.
+         * @return The current {@link CsvComparisonResultOptions.Builder}.
+         */
+        public Builder retention(@Nonnull Retention retention) {
+            this.retention = checkNotNull(retention, "retention cannot not be null");
+            return this;
+        }
+
+        /**
+         * Set maximum number of rows are retained per category when retention is {@link Retention#SAMPLE}.
+         *
+         * @param size The sample size. Default to {@code 100}.
+         * @return The current {@link CsvComparisonResultOptions.Builder}.
+         */
+        public Builder sampleSize(int size) {
+            checkArgument(size > -1, "sampleSize should be greater -1");
+            this.sampleSize = size;
+            return this;
+        }
+
         /**
          * Build {@link CsvComparisonResultOptions} based on {@link Builder}.
          *
          * @return A {@link CsvComparisonResultOptions}.
          */
         public CsvComparisonResultOptions build() {
+            // Snapshot of current values, built options never change
+            Path location = this.location;
+            boolean includeHeaders = this.includeHeaders;
+            boolean writeOutputs = this.writeOutputs;
+            Set<Category> outputs = this.outputs;
+            Compression compression = this.compression;
+            Retention retention = this.retention;
+            int sampleSize = this.sampleSize;
+
             return new CsvComparisonResultOptions() {
                 @Nonnull
                 @Override
@@ -132,6 +344,29 @@ public interface CsvComparisonResultOptions {
                 public boolean writeOutputs() {
                     return writeOutputs;
                 }
+
+                @Nonnull
+                @Override
+                public Set<Category> outputs() {
+                    return outputs;
+                }
+
+                @Nonnull
+                @Override
+                public Compression compression() {
+                    return compression;
+                }
+
+                @Nonnull
+                @Override
+                public Retention retention() {
+                    return retention;
+                }
+
+                @Override
+                public int sampleSize() {
+                    return sampleSize;
+                }
             };
         }
     }
@@ -0,0 +1,264 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.RuntimeError;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Where a CSV is read from: a file, or an {@link InputStream}, a {@link Reader}, a {@link ReadableByteChannel}.<br>
+ * Rows are parsed straight from the source, CSV in memory or from a socket needn't be written to a temp file.<br>
+ * A source of file or {@link Supplier} is opened again whenever it's read.
+ * A source of opened stream is read only once.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public final class CsvComparisonSource {
+    private static final Logger log = LoggerFactory.getLogger(CsvComparisonSource.class);
+    private final String name;
+    private final File file;
+    private final Supplier<? extends InputStream> streams;
+    private final Supplier<? extends Reader> readers;
+    private final boolean repeatable;
+    private final boolean absent;
+    private BufferedInputStream sampled;
+    private boolean opened;
+
+    private CsvComparisonSource(String name, File file, Supplier<? extends InputStream> streams, Supplier<? extends Reader> readers, boolean repeatable) {
+        this(name, file, streams, readers, repeatable, false);
+    }
+
+    private CsvComparisonSource(String name, File file, Supplier<? extends InputStream> streams, Supplier<? extends Reader> readers, boolean repeatable, boolean absent) {
+        this.name = Preconditions.checkNotNull(name, "name cannot be null");
+        this.file = file;
+        this.streams = streams;
+        this.readers = readers;
+        this.repeatable = repeatable;
+        this.absent = absent;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Read CSV from a file. Compressed file is decompressed while it's read.
+     *
+     * @param file The CSV file.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource of(File file) {
+        Preconditions.checkNotNull(file, "file cannot be null");
+        return new CsvComparisonSource(file.getPath(), file, null, null, true);
+    }
+
+    /**
+     * Read CSV from a path. It can be a path of any file system, e.g. an entry of ZIP file system.
+     *
+     * @param path The path to CSV.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource of(Path path) {
+        Preconditions.checkNotNull(path, "path cannot be null");
+        try {
+            return of(path.toFile());
+        } catch (UnsupportedOperationException ex) {
+            // Not default file system
+            return ofInputStream(path.toUri().toString(), () -> newInputStream(path));
+        }
+    }
+
+    /**
+     * Read CSV from an opened {@link InputStream} once. It's closed after reading.
+     *
+     * @param name The name of CSV in logs, outputs and reports.
+     * @param in   The {@link InputStream}.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource of(String name, InputStream in) {
+        Preconditions.checkNotNull(in, "in cannot be null");
+        return new CsvComparisonSource(name, null, () -> in, null, false);
+    }
+
+    /**
+     * Read CSV from an opened {@link Reader} once. It's closed after reading.
+     *
+     * @param name   The name of CSV in logs, outputs and reports.
+     * @param reader The {@link Reader}.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource of(String name, Reader reader) {
+        Preconditions.checkNotNull(reader, "reader cannot be null");
+        return new CsvComparisonSource(name, null, null, () -> reader, false);
+    }
+
+    /**
+     * Read CSV from an opened {@link ReadableByteChannel} once. It's closed after reading.
+     *
+     * @param name    The name of CSV in logs, outputs and reports.
+     * @param channel The {@link ReadableByteChannel}.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource of(String name, ReadableByteChannel channel) {
+        Preconditions.checkNotNull(channel, "channel cannot be null");
+        return new CsvComparisonSource(name, null, () -> Channels.newInputStream(channel), null, false);
+    }
+
+    /**
+     * Read CSV from {@link InputStream} which is supplied whenever CSV is read.
+     *
+     * @param name     The name of CSV in logs, outputs and reports.
+     * @param supplier The {@link Supplier} of {@link InputStream}.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource ofInputStream(String name, Supplier<? extends InputStream> supplier) {
+        Preconditions.checkNotNull(supplier, "supplier cannot be null");
+        return new CsvComparisonSource(name, null, supplier, null, true);
+    }
+
+    /**
+     * Read CSV from {@link Reader} which is supplied whenever CSV is read.
+     *
+     * @param name     The name of CSV in logs, outputs and reports.
+     * @param supplier The {@link Supplier} of {@link Reader}.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource ofReader(String name, Supplier<? extends Reader> supplier) {
+        Preconditions.checkNotNull(supplier, "supplier cannot be null");
+        return new CsvComparisonSource(name, null, null, supplier, true);
+    }
+
+    /**
+     * Read CSV from {@link ReadableByteChannel} which is supplied whenever CSV is read.
+     *
+     * @param name     The name of CSV in logs, outputs and reports.
+     * @param supplier The {@link Supplier} of {@link ReadableByteChannel}.
+     * @return A {@link CsvComparisonSource}.
+     */
+    public static CsvComparisonSource ofChannel(String name, Supplier<? extends ReadableByteChannel> supplier) {
+        Preconditions.checkNotNull(supplier, "supplier cannot be null");
+        return new CsvComparisonSource(name, null, () -> Channels.newInputStream(supplier.get()), null, true);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * The name of CSV, it's the path when CSV is read from a file.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The CSV file.
+     *
+     * @return The {@link File}, or {@code null} when CSV isn't read from a file.
+     */
+    @Nullable
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Whether CSV can be read more than once.
+     *
+     * @return Indicate CSV is read from a file or a {@link Supplier}.
+     */
+    public boolean isRepeatable() {
+        return repeatable;
+    }
+
+    /**
+     * Whether CSV is absent. In bulk comparison, a file is present in only one CSV directory
+     * is compared against an absent CSV, all its rows are inserted or deleted.
+     *
+     * @return Indicate there is no CSV to read.
+     */
+    public boolean isAbsent() {
+        return absent;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * A CSV which doesn't exist at the path, it's never read.
+     */
+    static CsvComparisonSource absent(Path path) {
+        return new CsvComparisonSource(path.toString(), null, InputStream::nullInputStream, null, false, true);
+    }
+
+    boolean isReader() {
+        return readers != null;
+    }
+
+    synchronized InputStream openStream() {
+        if (sampled != null) {
+            InputStream in = sampled;
+            sampled = null;
+            return in;
+        }
+        checkOpen();
+        return file != null ? CsvInput.open(file) : streams.get();
+    }
+
+    synchronized Reader openReader() {
+        checkOpen();
+        return readers.get();
+    }
+
+    /**
+     * Read leading bytes without consuming them, the next {@link #openStream()} starts from the first byte.
+     *
+     * @return The number of bytes are read.
+     */
+    synchronized int sample(byte[] buffer) throws IOException {
+        if (sampled == null) {
+            sampled = new BufferedInputStream(openStream(), buffer.length);
+        }
+        sampled.mark(buffer.length);
+        int length = sampled.readNBytes(buffer, 0, buffer.length);
+        sampled.reset();
+        return length;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private void checkOpen() {
+        if (opened && !repeatable) {
+            String msg = String.format("CSV source is read only once: %s", name);
+            log.error(msg);
+            throw new RuntimeError(msg);
+        }
+        opened = true;
+    }
+
+    private static InputStream newInputStream(Path path) {
+        try {
+            return Files.newInputStream(path);
+        } catch (IOException ex) {
+            String msg = String.format("Error occurred while reading CSV: %s", path.toUri());
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+}
@@ -41,12 +41,28 @@ import java.util.List;
  */
 public interface CsvComparisonVisitor {
     /**
-     * Callback before {@link CsvComparator#compare(File, File, CsvComparisonOptions)}.
+     * Callback before {@link CsvComparator#compare(CsvComparisonSource, CsvComparisonSource, CsvComparisonOptions)}.
      *
-     * @param exp     The expected CSV file.
-     * @param act     The actual CSV file needs to compare.
+     * @param exp     The expected CSV source.
+     * @param act     The actual CSV source needs to compare.
      * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
      */
+    default void comparisonStarted(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        comparisonStarted(options, exp.getFile(), act.getFile());
+    }
+
+    /**
+     * Callback before {@link CsvComparator#compare(File, File, CsvComparisonOptions)}.<br>
+     * It's only called by the default implementation of
+     * {@link #comparisonStarted(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource)}.
+     *
+     * @param exp     The expected CSV file, or {@code null} when CSV isn't read from a file.
+     * @param act     The actual CSV file needs to compare, or {@code null} when CSV isn't read from a file.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @deprecated Use {@link #comparisonStarted(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource)}
+     * which also describes CSV isn't read from a file.
+     */
+    @Deprecated
     default void comparisonStarted(CsvComparisonOptions options, File exp, File act) {/**/}
 
     /**
@@ -86,20 +102,198 @@ public interface CsvComparisonVisitor {
      * @param headers Extracted from the CSV file you have provided.<br>
      *                Headers row is existed or not depends on {@link CsvComparisonOptions.Builder#withoutHeaders()}.
      * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param diffs   Differences at specific cells, see {@link CellDiff}.<br>
+     *                It's reused for the next modified row, use {@link CellDiffs#copy()} to keep it.
+     */
+    default void rowModified(CsvComparisonOptions options, String[] headers, String[] row, CellDiffs diffs) {
+        rowModified(options, headers, row, diffs.toMaps());
+    }
+
+    /**
+     * Callback for when {@link CsvComparator} detected a row modified.<br>
+     * It's only called by the default implementation of
+     * {@link #rowModified(CsvComparisonOptions, String[], String[], CellDiffs)}.
+     *
+     * @param row     The row modified.
+     * @param headers Extracted from the CSV file you have provided.<br>
+     *                Headers row is existed or not depends on {@link CsvComparisonOptions.Builder#withoutHeaders()}.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
      * @param diffs   List of difference at specific cells: [column, expCell, actCell]<br>
-     *                - column: name of column (header) <br>
+     *                - column: name of column (header), or column index when CSV file hasn't headers <br>
      *                - expCell: cell value of expected CSV <br>
      *                - actCell: cell value of actual CSV <br>
+     * @deprecated Use {@link #rowModified(CsvComparisonOptions, String[], String[], CellDiffs)} which doesn't allocate maps.
      */
+    @Deprecated
     default void rowModified(CsvComparisonOptions options, String[] headers, String[] row, List<HashMap<String, String>> diffs) {/**/}
 
     /**
-     * Callback after {@link CsvComparator#compare(File, File, CsvComparisonOptions)}.
+     * Callback for when {@link CsvComparator} detected a row of duplicated key which has no counterpart in the other CSV.<br>
+     * It's only called when {@link CsvComparisonOptions#duplicateKeys()} is enabled.
      *
-     * @param exp     The expected CSV file.
-     * @param act     The actual CSV file needs to compare.
+     * @param row     The row duplicated, it's a row of either expected CSV or actual CSV.
+     * @param headers Extracted from the CSV file you have provided.<br>
+     *                Headers row is existed or not depends on {@link CsvComparisonOptions.Builder#withoutHeaders()}.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     */
+    default void rowDuplicated(CsvComparisonOptions options, String[] headers, String[] row) {/**/}
+
+    /**
+     * Whether kept rows are needed by this visitor.<br>
+     * When no visitor needs them, byte-identical CSV files aren't parsed to deliver kept rows,
+     * see {@link CsvComparisonOptions.Builder#byteCheck()}.
+     * It's asked after {@link #comparisonStarted(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource)}.
+     *
+     * @return Indicate to deliver kept rows. Default to {@code true}.
+     */
+    default boolean visitsKeptRows() {
+        return true;
+    }
+
+    /**
+     * Whether rows are delivered in batches per category instead of one by one.<br>
+     * When it's {@code true}, {@link CsvComparator} calls {@link #rowsKept(CsvComparisonOptions, String[], String[][], int) rowsKept},
+     * {@link #rowsDeleted(CsvComparisonOptions, String[], String[][], int) rowsDeleted},
+     * {@link #rowsInserted(CsvComparisonOptions, String[], String[][], int) rowsInserted},
+     * {@link #rowsModified(CsvComparisonOptions, String[], String[][], CellDiffs[], int) rowsModified} and
+     * {@link #rowsDuplicated(CsvComparisonOptions, String[], String[][], int) rowsDuplicated}
+     * instead of callbacks for single row. Rows of different categories aren't delivered in the order they are detected.
+     *
+     * @return Indicate to deliver rows in batches. Default to {@code false}.
+     */
+    default boolean batchRows() {
+        return false;
+    }
+
+    /**
+     * Callback for when {@link CsvComparator} detected a batch of rows kept.
+     * It's only called when {@link #batchRows()} is {@code true}.
+     *
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param headers Extracted from the CSV file you have provided.
+     * @param rows    The rows kept, only the first {@code count} rows are valid.<br>
+     *                The array is reused for the next batch, copy rows to keep them.
+     * @param count   The number of rows in the batch.
+     */
+    default void rowsKept(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        for (int index = 0; index < count; index++) {
+            rowKept(options, headers, rows[index]);
+        }
+    }
+
+    /**
+     * Callback for when {@link CsvComparator} detected a batch of rows deleted.
+     * It's only called when {@link #batchRows()} is {@code true}.
+     *
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param headers Extracted from the CSV file you have provided.
+     * @param rows    The rows deleted, only the first {@code count} rows are valid.<br>
+     *                The array is reused for the next batch, copy rows to keep them.
+     * @param count   The number of rows in the batch.
+     */
+    default void rowsDeleted(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        for (int index = 0; index < count; index++) {
+            rowDeleted(options, headers, rows[index]);
+        }
+    }
+
+    /**
+     * Callback for when {@link CsvComparator} detected a batch of rows inserted.
+     * It's only called when {@link #batchRows()} is {@code true}.
+     *
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param headers Extracted from the CSV file you have provided.
+     * @param rows    The rows inserted, only the first {@code count} rows are valid.<br>
+     *                The array is reused for the next batch, copy rows to keep them.
+     * @param count   The number of rows in the batch.
+     */
+    default void rowsInserted(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        for (int index = 0; index < count; index++) {
+            rowInserted(options, headers, rows[index]);
+        }
+    }
+
+    /**
+     * Callback for when {@link CsvComparator} detected a batch of rows modified.
+     * It's only called when {@link #batchRows()} is {@code true}.
+     *
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param headers Extracted from the CSV file you have provided.
+     * @param rows    The rows modified, only the first {@code count} rows are valid.<br>
+     *                The array is reused for the next batch, copy rows to keep them.
+     * @param diffs   Differences at cells of each row, they aren't reused.
+     * @param count   The number of rows in the batch.
+     */
+    default void rowsModified(CsvComparisonOptions options, String[] headers, String[][] rows, CellDiffs[] diffs, int count) {
+        for (int index = 0; index < count; index++) {
+            rowModified(options, headers, rows[index], diffs[index]);
+        }
+    }
+
+    /**
+     * Callback for when {@link CsvComparator} detected a batch of rows duplicated.
+     * It's only called when {@link #batchRows()} is {@code true}.
+     *
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param headers Extracted from the CSV file you have provided.
+     * @param rows    The rows duplicated, only the first {@code count} rows are valid.<br>
+     *                The array is reused for the next batch, copy rows to keep them.
+     * @param count   The number of rows in the batch.
+     */
+    default void rowsDuplicated(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        for (int index = 0; index < count; index++) {
+            rowDuplicated(options, headers, rows[index]);
+        }
+    }
+
+    /**
+     * Callback after {@link CsvComparator#compare(CsvComparisonSource, CsvComparisonSource, CsvComparisonOptions)}.
+     *
+     * @param exp     The expected CSV source.
+     * @param act     The actual CSV source needs to compare.
      * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
      * @param result  A {@link CsvComparisonResult} after comparison process ended.
      */
+    default void comparisonFinished(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonResult result) {
+        comparisonFinished(options, exp.getFile(), act.getFile(), result);
+    }
+
+    /**
+     * Callback after {@link CsvComparator#compare(File, File, CsvComparisonOptions)}.<br>
+     * It's only called by the default implementation of
+     * {@link #comparisonFinished(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource, CsvComparisonResult)}.
+     *
+     * @param exp     The expected CSV file, or {@code null} when CSV isn't read from a file.
+     * @param act     The actual CSV file needs to compare, or {@code null} when CSV isn't read from a file.
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param result  A {@link CsvComparisonResult} after comparison process ended.
+     * @deprecated Use {@link #comparisonFinished(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource, CsvComparisonResult)}
+     * which also describes CSV isn't read from a file.
+     */
+    @Deprecated
     default void comparisonFinished(CsvComparisonOptions options, File exp, File act, CsvComparisonResult result) {/**/}
+
+    /**
+     * Callback when comparison is cancelled by {@link CsvCancellation}, instead of
+     * {@link #comparisonFinished(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource, CsvComparisonResult) comparisonFinished}.<br>
+     * Rows detected before cancelling were already delivered, resources of the visitor should be released here.
+     *
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param exp     The expected CSV source.
+     * @param act     The actual CSV source needs to compare.
+     */
+    default void comparisonCancelled(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {/**/}
+
+    /**
+     * Callback when comparison fails with an error, instead of
+     * {@link #comparisonFinished(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource, CsvComparisonResult) comparisonFinished}.<br>
+     * It's also called when the visitor failed in {@link #comparisonStarted(CsvComparisonOptions, CsvComparisonSource, CsvComparisonSource) comparisonStarted},
+     * or after another visitor failed in {@code comparisonFinished}. Resources of the visitor should be released here.
+     *
+     * @param options The {@link CsvComparisonOptions} to adjust behaviors of {@link CsvComparator}.
+     * @param exp     The expected CSV source.
+     * @param act     The actual CSV source needs to compare.
+     * @param error   The error which failed the comparison.
+     */
+    default void comparisonFailed(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, Throwable error) {/**/}
 }
@@ -0,0 +1,471 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.RuntimeError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Compact on-heap index of expected rows by key.<br>
+ * An open-addressing table maps 64-bit hashes of keys to row addresses.
+ * Rows are encoded into shared {@code char[]} pages, and only materialized as {@code String[]} when needed.
+ * Hash collisions are resolved by comparing key cells in place.
+ * When duplicated keys are kept, rows are numbered in file order and chained per key and per identical cells instead.
+ * Each chain keeps a cursor past its matched rows, so a key repeated in many rows isn't walked from its first row on every probe.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+class CsvHeapIndex implements CsvIndex {
+    private static final int PAGE_SIZE = 1 << 20;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final long EMPTY = -1;
+    private static final long MATCHED = 1L << 62;
+    private static final long KEY_MATCHED = 1L << 61;
+    private static final long ADDRESS = KEY_MATCHED - 1;
+    private static final int NULL_CELL = -1;
+    private final CsvKey key;
+    private final int[] keyColumns;
+    private final boolean duplicates;
+    private final List<char[]> pages = new ArrayList<>();
+    private char[] page;
+    private int position;
+    private long[] hashes;
+    private long[] addresses;
+    private int mask;
+    private int size;
+    private long[] rows;
+    private int[] firsts;
+    private int[] keyNexts;
+    private int[] sameNexts;
+    private Chains keyChains;
+    private Chains sameChains;
+
+    CsvHeapIndex(CsvKey key) {
+        this(key, false);
+    }
+
+    CsvHeapIndex(CsvKey key, boolean duplicates) {
+        this.key = key;
+        this.keyColumns = key.getSortedColumns();
+        this.duplicates = duplicates;
+
+        if (duplicates) {
+            this.rows = new long[16];
+            this.firsts = new int[16];
+            this.keyNexts = new int[16];
+            this.sameNexts = new int[16];
+            this.keyChains = new Chains();
+            this.sameChains = new Chains();
+        } else {
+            allocate(16);
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    void put(String[] row) {
+        long hash = key.hash(row);
+        long address = write(row);
+
+        if (duplicates) {
+            chain(hash, address, row);
+            return;
+        }
+        if ((size + 1) * 2L > addresses.length) {
+            grow();
+        }
+        int slot = (int) hash & mask;
+
+        while (addresses[slot] != EMPTY) {
+            if (!duplicates && hashes[slot] == hash && keyEquals(addresses[slot], row)) {
+                // Same as Map, the last row wins when key is duplicated
+                addresses[slot] = address;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        addresses[slot] = address;
+        size++;
+    }
+
+    @Override
+    public int find(String[] row) {
+        long hash = key.hash(row);
+
+        if (duplicates) {
+            return findDuplicate(hash, row);
+        }
+        for (int slot = (int) hash & mask; addresses[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keyEquals(addresses[slot] & ~MATCHED, row)) {
+                return (addresses[slot] & MATCHED) != 0 ? -1 : slot;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isMatched(String[] row) {
+        long hash = key.hash(row);
+
+        if (duplicates) {
+            int chain = keyChains.find(hash, first -> keyEquals(rows[first] & ADDRESS, row));
+            return chain != -1 && (rows[keyChains.firsts[chain]] & KEY_MATCHED) != 0;
+        }
+        for (int slot = (int) hash & mask; addresses[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && (addresses[slot] & MATCHED) != 0 && keyEquals(addresses[slot] & ~MATCHED, row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void match(int slot) {
+        if (duplicates) {
+            rows[slot] |= MATCHED;
+            rows[firsts[slot]] |= KEY_MATCHED;
+        } else {
+            addresses[slot] |= MATCHED;
+        }
+    }
+
+    @Override
+    public boolean rowEquals(int slot, String[] row) {
+        long address = getAddress(slot);
+        char[] data = pages.get((int) (address >>> 32));
+        int offset = (int) address;
+
+        if (readInt(data, offset) != row.length) {
+            return false;
+        }
+        offset += 2;
+
+        for (String cell : row) {
+            int length = readInt(data, offset);
+            offset += 2;
+
+            if (length == NULL_CELL) {
+                if (cell != null) {
+                    return false;
+                }
+                continue;
+            }
+            if (cell == null || cell.length() != length) {
+                return false;
+            }
+            for (int index = 0; index < length; index++) {
+                if (data[offset + index] != cell.charAt(index)) {
+                    return false;
+                }
+            }
+            offset += length;
+        }
+        return true;
+    }
+
+    @Override
+    public String[] getRow(int slot) {
+        return read(getAddress(slot));
+    }
+
+    @Override
+    public void forEachUnmatched(Consumer<String[]> action) {
+        if (duplicates) {
+            for (int index = 0; index < size; index++) {
+                if ((rows[index] & MATCHED) == 0) {
+                    action.accept(read(rows[index] & ADDRESS));
+                }
+            }
+            return;
+        }
+        for (long address : addresses) {
+            if (address != EMPTY && (address & MATCHED) == 0) {
+                action.accept(read(address));
+            }
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private static void writeInt(char[] data, int offset, int value) {
+        data[offset] = (char) (value >>> 16);
+        data[offset + 1] = (char) value;
+    }
+
+    private static int readInt(char[] data, int offset) {
+        return (data[offset] << 16) | data[offset + 1];
+    }
+
+    private long getAddress(int slot) {
+        return (duplicates ? rows[slot] : addresses[slot]) & ADDRESS;
+    }
+
+    private int findDuplicate(long hash, String[] row) {
+        // Rows having the same cells are paired first
+        int sameChain = sameChains.find(CsvIndex.hash(row), first -> true);
+
+        if (sameChain != -1) {
+            for (int same = sameChains.next(sameChain, rows, sameNexts); same != -1; same = sameNexts[same]) {
+                if ((rows[same] & MATCHED) == 0 && rowEquals(same, row)) {
+                    return same;
+                }
+            }
+        }
+        // Then the first unmatched row of the same key in file order
+        int keyChain = keyChains.find(hash, first -> keyEquals(rows[first] & ADDRESS, row));
+        return keyChain == -1 ? -1 : keyChains.next(keyChain, rows, keyNexts);
+    }
+
+    private void chain(long hash, long address, String[] row) {
+        if (size == rows.length) {
+            if (size >= MAX_CAPACITY / 2) {
+                throw new RuntimeError("Expected CSV has too many rows to index");
+            }
+            rows = Arrays.copyOf(rows, size * 2);
+            firsts = Arrays.copyOf(firsts, size * 2);
+            keyNexts = Arrays.copyOf(keyNexts, size * 2);
+            sameNexts = Arrays.copyOf(sameNexts, size * 2);
+        }
+        int index = size++;
+        rows[index] = address;
+        firsts[index] = keyChains.add(hash, index, first -> keyEquals(rows[first] & ADDRESS, row), keyNexts);
+        sameChains.add(CsvIndex.hash(row), index, first -> true, sameNexts);
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        addresses = new long[capacity];
+        mask = capacity - 1;
+        Arrays.fill(addresses, EMPTY);
+    }
+
+    private void grow() {
+        if (addresses.length >= MAX_CAPACITY) {
+            throw new RuntimeError("Expected CSV has too many rows to index");
+        }
+        long[] oldHashes = hashes;
+        long[] oldAddresses = addresses;
+        allocate(addresses.length * 2);
+
+        for (int index = 0; index < oldAddresses.length; index++) {
+            if (oldAddresses[index] != EMPTY) {
+                int slot = (int) oldHashes[index] & mask;
+
+                while (addresses[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[index];
+                addresses[slot] = oldAddresses[index];
+            }
+        }
+    }
+
+    private long write(String[] row) {
+        int length = 2;
+        for (String cell : row) {
+            length += 2 + (cell == null ? 0 : cell.length());
+        }
+        if (page == null || position + length > page.length) {
+            page = new char[Math.max(PAGE_SIZE, length)];
+            pages.add(page);
+            position = 0;
+        }
+        long address = ((long) (pages.size() - 1) << 32) | position;
+        writeInt(page, position, row.length);
+        position += 2;
+
+        for (String cell : row) {
+            if (cell == null) {
+                writeInt(page, position, NULL_CELL);
+                position += 2;
+            } else {
+                writeInt(page, position, cell.length());
+                position += 2;
+                cell.getChars(0, cell.length(), page, position);
+                position += cell.length();
+            }
+        }
+        return address;
+    }
+
+    private String[] read(long address) {
+        char[] data = pages.get((int) (address >>> 32));
+        int offset = (int) address;
+        String[] row = new String[readInt(data, offset)];
+        offset += 2;
+
+        for (int index = 0; index < row.length; index++) {
+            int length = readInt(data, offset);
+            offset += 2;
+
+            if (length != NULL_CELL) {
+                row[index] = new String(data, offset, length);
+                offset += length;
+            }
+        }
+        return row;
+    }
+
+    private boolean keyEquals(long address, String[] row) {
+        char[] data = pages.get((int) (address >>> 32));
+        int offset = (int) address + 2;
+        int column = 0;
+
+        // Key columns are visited in row order, so the encoded row is walked once
+        for (int keyColumn : keyColumns) {
+            for (; column < keyColumn; column++) {
+                int length = readInt(data, offset);
+                offset += 2 + (length == NULL_CELL ? 0 : length);
+            }
+            if (!cellEquals(data, offset, row[keyColumn])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean cellEquals(char[] data, int offset, String cell) {
+        int length = readInt(data, offset);
+        offset += 2;
+
+        if (length == NULL_CELL || cell == null) {
+            return length == NULL_CELL && cell == null;
+        }
+        if (length != cell.length()) {
+            return false;
+        }
+        for (int index = 0; index < length; index++) {
+            if (data[offset + index] != cell.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //===============================================================================//
+
+    /**
+     * Open-addressing table of chains of rows, a chain is linked in file order by next rows.<br>
+     * Each chain keeps a cursor to its first row which may be unmatched,
+     * the cursor only moves forward since matched rows are never unmatched.
+     */
+    private static class Chains {
+        private long[] hashes;
+        private int[] firsts;
+        private int[] lasts;
+        private int[] cursors;
+        private int mask;
+        private int size;
+
+        private Chains() {
+            allocate(16);
+        }
+
+        /**
+         * Find the chain of hash, which first row is accepted.
+         */
+        private int find(long hash, IntPredicate accepted) {
+            for (int chain = (int) hash & mask; firsts[chain] != -1; chain = (chain + 1) & mask) {
+                if (hashes[chain] == hash && accepted.test(firsts[chain])) {
+                    return chain;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Append a row to the chain of hash, which first row is accepted, or to a new chain.
+         *
+         * @return The first row of chain.
+         */
+        private int add(long hash, int row, IntPredicate accepted, int[] nexts) {
+            nexts[row] = -1;
+            int chain = find(hash, accepted);
+
+            if (chain != -1) {
+                nexts[lasts[chain]] = row;
+                lasts[chain] = row;
+                return firsts[chain];
+            }
+            if ((size + 1) * 2L > firsts.length) {
+                grow();
+            }
+            chain = (int) hash & mask;
+
+            while (firsts[chain] != -1) {
+                chain = (chain + 1) & mask;
+            }
+            hashes[chain] = hash;
+            firsts[chain] = row;
+            lasts[chain] = row;
+            cursors[chain] = row;
+            size++;
+            return row;
+        }
+
+        /**
+         * Move cursor of chain past its matched rows.
+         *
+         * @return The first unmatched row of chain, or {@code -1} when all rows were matched.
+         */
+        private int next(int chain, long[] rows, int[] nexts) {
+            int row = cursors[chain];
+
+            while (row != -1 && (rows[row] & MATCHED) != 0) {
+                row = nexts[row];
+            }
+            cursors[chain] = row;
+            return row;
+        }
+
+        private void allocate(int capacity) {
+            hashes = new long[capacity];
+            firsts = new int[capacity];
+            lasts = new int[capacity];
+            cursors = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(firsts, -1);
+        }
+
+        private void grow() {
+            if (firsts.length >= MAX_CAPACITY) {
+                throw new RuntimeError("Expected CSV has too many rows to index");
+            }
+            long[] oldHashes = hashes;
+            int[] oldFirsts = firsts;
+            int[] oldLasts = lasts;
+            int[] oldCursors = cursors;
+            allocate(firsts.length * 2);
+
+            for (int index = 0; index < oldFirsts.length; index++) {
+                if (oldFirsts[index] != -1) {
+                    int chain = (int) oldHashes[index] & mask;
+
+                    while (firsts[chain] != -1) {
+                        chain = (chain + 1) & mask;
+                    }
+                    hashes[chain] = oldHashes[index];
+                    firsts[chain] = oldFirsts[index];
+                    lasts[chain] = oldLasts[index];
+                    cursors[chain] = oldCursors[index];
+                }
+            }
+        }
+    }
+}
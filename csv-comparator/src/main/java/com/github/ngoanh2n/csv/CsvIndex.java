@@ -0,0 +1,111 @@
+package com.github.ngoanh2n.csv;
+
+import java.util.function.Consumer;
+
+/**
+ * Index of expected rows by key which actual rows are probed against.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+interface CsvIndex {
+    /**
+     * Hash a cell value of key into 64 bits.
+     *
+     * @param key The cell value.
+     * @return The hash which is stable across JVMs, so it can be persisted.
+     */
+    static long hash(String key) {
+        if (key == null) {
+            return 0x9E3779B97F4A7C15L;
+        }
+        // FNV-1a over chars, then mixed so that low bits are well distributed
+        long hash = 0xCBF29CE484222325L;
+        for (int index = 0; index < key.length(); index++) {
+            hash ^= key.charAt(index);
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Hash all cells of a row into 64 bits.
+     *
+     * @param row The row.
+     * @return The hash which is stable across JVMs, so it can be persisted.
+     */
+    static long hash(String[] row) {
+        long hash = row.length;
+
+        for (String cell : row) {
+            hash = hash * 0x9E3779B97F4A7C15L + hash(cell);
+        }
+        return hash;
+    }
+
+    /**
+     * Number of distinct keys, or number of rows when duplicated keys are kept.
+     *
+     * @return The row count.
+     */
+    int size();
+
+    /**
+     * Find the slot of an expected row which has the same key as an actual row and hasn't been matched yet.<br>
+     * When duplicated keys are kept, an expected row which also has the same cells is found first.
+     *
+     * @param row The actual row.
+     * @return The slot, or {@code -1} when there is no such expected row.
+     */
+    int find(String[] row);
+
+    /**
+     * Whether an expected row which has the same key as a row has been matched.
+     *
+     * @param row The expected row or actual row.
+     * @return Indicate the key of row has been matched.
+     */
+    boolean isMatched(String[] row);
+
+    /**
+     * Mark the expected row at slot as matched, so it's neither found nor reported as deleted anymore.
+     *
+     * @param slot The slot returned by {@link #find(String[])}.
+     */
+    void match(int slot);
+
+    /**
+     * Compare the expected row at slot with an actual row without materializing it.
+     *
+     * @param slot The slot returned by {@link #find(String[])}.
+     * @param row  The actual row.
+     * @return Indicate both rows have the same cells.
+     */
+    boolean rowEquals(int slot, String[] row);
+
+    /**
+     * Materialize the expected row at slot.
+     *
+     * @param slot The slot returned by {@link #find(String[])}.
+     * @return The expected row.
+     */
+    String[] getRow(int slot);
+
+    /**
+     * Materialize expected rows which haven't been matched.
+     *
+     * @param action The action accepts each unmatched row.
+     */
+    void forEachUnmatched(Consumer<String[]> action);
+}
@@ -0,0 +1,226 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Commons;
+import com.github.ngoanh2n.RuntimeError;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Open CSV file for reading, compressed CSV file is decompressed while it's read.
+ * <ul>
+ *     <li>GZIP file is decompressed, e.g. {@code file.csv.gz}</li>
+ *     <li>ZIP file is read from its first file entry, e.g. {@code file.zip}</li>
+ *     <li>An entry of ZIP file is addressed as a file under the ZIP file, e.g. {@code data.zip/dir/file.csv}</li>
+ * </ul>
+ * Compression is detected by leading bytes of file, not by file extension.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+final class CsvInput {
+    private static final Logger log = LoggerFactory.getLogger(CsvInput.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC = 0x1F8B;
+    private static final int ZIP_MAGIC = 0x504B0304;
+
+    private CsvInput() { /**/ }
+
+    //-------------------------------------------------------------------------------//
+
+    static InputStream open(File file) {
+        try {
+            File archive = getArchive(file);
+            if (archive != null) {
+                return openEntry(archive, file);
+            }
+            InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+
+            try {
+                int magic = readMagic(in);
+
+                if (magic >>> 16 == GZIP_MAGIC) {
+                    return new GZIPInputStream(in, BUFFER_SIZE);
+                }
+                if (magic == ZIP_MAGIC) {
+                    return openFirstEntry(in);
+                }
+                return in;
+            } catch (IOException | RuntimeException ex) {
+                in.close();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            String msg = String.format("Error occurred while reading CSV file: %s", Commons.getRelative(file));
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+
+    /**
+     * Get the file is stored on disk, it's the ZIP file when the file is an entry of ZIP file.
+     */
+    static File getStorage(File file) {
+        File archive = getArchive(file);
+        return archive == null ? file : archive;
+    }
+
+    /**
+     * Whether the file is stored on disk as is, it's neither compressed nor an entry of ZIP file.
+     */
+    static boolean isPlain(File file) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 4)) {
+            int magic = readMagic(in);
+            return magic >>> 16 != GZIP_MAGIC && magic != ZIP_MAGIC;
+        }
+    }
+
+    /**
+     * Hash bytes of the file is stored on disk.
+     */
+    static long hashContent(File file) throws IOException {
+        return MoreFiles.asByteSource(file.toPath()).hash(Hashing.murmur3_128()).asLong();
+    }
+
+    static boolean isIdentical(File exp, File act) throws IOException {
+        if (exp.isFile() && act.isFile()) {
+            // Same compressed bytes have same content, otherwise compare rows
+            return Files.mismatch(exp.toPath(), act.toPath()) == -1;
+        }
+        byte[] expBuffer = new byte[BUFFER_SIZE];
+        byte[] actBuffer = new byte[BUFFER_SIZE];
+
+        try (InputStream expIn = open(exp); InputStream actIn = open(act)) {
+            while (true) {
+                int expLength = expIn.readNBytes(expBuffer, 0, BUFFER_SIZE);
+                int actLength = actIn.readNBytes(actBuffer, 0, BUFFER_SIZE);
+
+                if (!Arrays.equals(expBuffer, 0, expLength, actBuffer, 0, actLength)) {
+                    return false;
+                }
+                if (expLength < BUFFER_SIZE) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * List files of a file in CSV directory, a ZIP file is listed as its file entries.
+     */
+    static List<Path> list(Path file) throws IOException {
+        if (!isZip(file.toFile())) {
+            return Collections.singletonList(file);
+        }
+        List<Path> entries = new ArrayList<>();
+
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+
+                if (!entry.isDirectory()) {
+                    entries.add(file.resolve(entry.getName()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private static boolean isZip(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 4)) {
+            return readMagic(in) == ZIP_MAGIC;
+        }
+    }
+
+    private static int readMagic(InputStream in) throws IOException {
+        byte[] magic = new byte[4];
+        in.mark(magic.length);
+        int length = in.readNBytes(magic, 0, magic.length);
+        in.reset();
+
+        int value = 0;
+        for (int index = 0; index < length; index++) {
+            value |= (magic[index] & 0xFF) << (24 - 8 * index);
+        }
+        return value;
+    }
+
+    private static File getArchive(File file) {
+        if (file.exists()) {
+            return null;
+        }
+        for (File parent = file.getAbsoluteFile().getParentFile(); parent != null; parent = parent.getParentFile()) {
+            if (parent.exists()) {
+                try {
+                    return parent.isFile() && isZip(parent) ? parent : null;
+                } catch (IOException ex) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static InputStream openEntry(File archive, File file) throws IOException {
+        Path relative = archive.toPath().toAbsolutePath().relativize(file.toPath().toAbsolutePath());
+        String name = relative.toString().replace(File.separatorChar, '/');
+        ZipFile zip = new ZipFile(archive);
+        ZipEntry entry = zip.getEntry(name);
+
+        if (entry == null || entry.isDirectory()) {
+            zip.close();
+            throw new NoSuchFileException(file.getPath());
+        }
+        return new FilterInputStream(new BufferedInputStream(zip.getInputStream(entry), BUFFER_SIZE)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    zip.close();
+                }
+            }
+        };
+    }
+
+    private static InputStream openFirstEntry(InputStream in) throws IOException {
+        ZipInputStream zin = new ZipInputStream(in);
+        ZipEntry entry = zin.getNextEntry();
+
+        while (entry != null && entry.isDirectory()) {
+            entry = zin.getNextEntry();
+        }
+        if (entry == null) {
+            throw new IOException("ZIP file has no file entry");
+        }
+        return zin;
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.ngoanh2n.csv;
+
+import com.google.common.io.CountingInputStream;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterate rows of CSV one by one without loading the whole CSV.<br>
+ * Compressed CSV file is decompressed while it's read, see {@link CsvInput}.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+class CsvIterator implements Iterator<String[]>, Closeable {
+    private final CsvParser parser;
+    private final CountingInputStream in;
+    private final boolean timed;
+    private String[] next;
+    private long nanos;
+    private long rows;
+    private CsvTracker tracker;
+    private CsvComparisonProgress.Phase phase;
+
+    CsvIterator(CsvParserSettings settings, CsvComparisonSource source, Charset charset) {
+        this(settings, source, charset, false);
+    }
+
+    /**
+     * @param timed Whether time of parsing is measured, see {@link #getNanos()}.
+     */
+    CsvIterator(CsvParserSettings settings, CsvComparisonSource source, Charset charset, boolean timed) {
+        long starting = timed ? System.nanoTime() : 0;
+        this.parser = new CsvParser(settings);
+        this.timed = timed;
+
+        if (source.isReader()) {
+            in = null;
+            parser.beginParsing(source.openReader());
+        } else {
+            in = new CountingInputStream(source.openStream());
+            parser.beginParsing(in, charset);
+        }
+        next = parser.parseNext();
+
+        if (timed) {
+            nanos += System.nanoTime() - starting;
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    String[] peek() {
+        return next;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public String[] next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        String[] row = next;
+        rows++;
+
+        if (timed) {
+            long starting = System.nanoTime();
+            next = parser.parseNext();
+            nanos += System.nanoTime() - starting;
+        } else {
+            next = parser.parseNext();
+        }
+        if (tracker != null && (rows % CsvTracker.INTERVAL == 0 || next == null)) {
+            tracker.rowsRead(phase, rows, getBytes());
+        }
+        return row;
+    }
+
+    /**
+     * Report progress and check cancellation while rows are iterated.
+     *
+     * @param tracker The {@link CsvTracker} of comparison, or {@code null} to not track.
+     * @param phase   The phase of comparison which rows are read for.
+     */
+    void track(@Nullable CsvTracker tracker, CsvComparisonProgress.Phase phase) {
+        this.tracker = tracker;
+        this.phase = phase;
+    }
+
+    /**
+     * Time of parsing rows so far, it's 0 when time isn't measured.
+     */
+    long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Number of rows are iterated so far.
+     */
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Number of bytes are read so far, it's 0 when CSV is read from a {@link java.io.Reader}.
+     */
+    long getBytes() {
+        return in == null ? 0 : in.getCount();
+    }
+
+    @Override
+    public void close() {
+        parser.stopParsing();
+    }
+}
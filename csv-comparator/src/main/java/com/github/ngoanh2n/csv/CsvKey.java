@@ -0,0 +1,101 @@
+package com.github.ngoanh2n.csv;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Key of rows, made of cells at one or more columns.<br>
+ * Cells are read in place from rows, a composite key is hashed and compared cell by cell
+ * without being concatenated into a single value.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+final class CsvKey {
+    private final int[] columns;
+    private final int[] sortedColumns;
+
+    CsvKey(int... columns) {
+        this.columns = columns.clone();
+        this.sortedColumns = columns.clone();
+        Arrays.sort(sortedColumns);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Column positions of the key in rows, in key order.
+     */
+    int[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * Column positions of the key in rows, in row order. Used to compare encoded rows in a single pass.
+     */
+    int[] getSortedColumns() {
+        return sortedColumns.clone();
+    }
+
+    /**
+     * Hash the key of a row, a single-column key has the same hash as {@link CsvIndex#hash(String)} of its cell.
+     */
+    long hash(String[] row) {
+        long hash = CsvIndex.hash(row[columns[0]]);
+
+        for (int index = 1; index < columns.length; index++) {
+            hash = hash * 0x9E3779B97F4A7C15L + CsvIndex.hash(row[columns[index]]);
+        }
+        return hash;
+    }
+
+    boolean equals(String[] row, String[] other) {
+        for (int column : columns) {
+            if (row[column] == null ? other[column] != null : !row[column].equals(other[column])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int compare(String[] row, String[] other, Comparator<String> keyOrder) {
+        for (int column : columns) {
+            int order = keyOrder.compare(row[column], other[column]);
+
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    Comparator<String[]> getOrder(Comparator<String> keyOrder) {
+        return (row, other) -> compare(row, other, keyOrder);
+    }
+
+    /**
+     * Format the key of a row for messages.
+     */
+    String format(String[] row) {
+        if (columns.length == 1) {
+            return row[columns[0]];
+        }
+        String[] cells = new String[columns.length];
+
+        for (int index = 0; index < columns.length; index++) {
+            cells[index] = row[columns[index]];
+        }
+        return Arrays.toString(cells);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(columns);
+    }
+}
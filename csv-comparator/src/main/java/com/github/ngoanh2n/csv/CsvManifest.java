@@ -0,0 +1,295 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Commons;
+import com.github.ngoanh2n.RuntimeError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifest of bulk comparison, it holds states of CSV files and the result of each file pair by relative path.<br>
+ * A file pair is unchanged when size and content hash of both files are the same as the last bulk comparison.
+ * The content hash is only computed when size is the same but modified time isn't.
+ * The manifest is discarded when it was written with other parsing or result options.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+class CsvManifest {
+    private static final Logger log = LoggerFactory.getLogger(CsvManifest.class);
+    private static final long MAGIC = 0x4353564D4E463031L;
+    private static final int VERSION = 1;
+    private final Path file;
+    private final CsvComparisonOptions options;
+    private final long fingerprint;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final Map<String, State[]> pending = new ConcurrentHashMap<>();
+
+    private CsvManifest(Path file, CsvComparisonOptions options, long fingerprint, Map<String, Entry> previous) {
+        this.file = file;
+        this.options = options;
+        this.fingerprint = fingerprint;
+        this.previous = previous;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Read the manifest file of the last bulk comparison.
+     *
+     * @param file    The manifest file.
+     * @param options The {@link CsvComparisonOptions} of bulk comparison.
+     * @return A {@link CsvManifest}, it's empty when the file is missing or was written with other options.
+     */
+    static CsvManifest load(Path file, CsvComparisonOptions options) {
+        long fingerprint = getFingerprint(options);
+        Map<String, Entry> entries = new HashMap<>();
+
+        if (Files.isRegularFile(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readLong() == MAGIC && in.readInt() == VERSION && in.readLong() == fingerprint) {
+                    for (int count = in.readInt(); count > 0; count--) {
+                        String target = in.readUTF();
+                        entries.put(target, Entry.read(in));
+                    }
+                }
+            } catch (EOFException ex) {
+                log.debug("Manifest is incomplete: {}", Commons.getRelative(file));
+                entries.clear();
+            } catch (IOException ex) {
+                String msg = String.format("Error occurred while reading manifest: %s", Commons.getRelative(file));
+                log.error(msg);
+                throw new RuntimeError(msg, ex);
+            }
+        }
+        log.debug("Manifest file pairs: {}", entries.size());
+        return new CsvManifest(file, options, fingerprint, entries);
+    }
+
+    /**
+     * Get the result of the last bulk comparison when files of the pair are unchanged.<br>
+     * States of files are read before comparison, so a file changed while it's compared is compared again next time.
+     *
+     * @param target The relative path of file pair.
+     * @param exp    The expected CSV source.
+     * @param act    The actual CSV source.
+     * @return The result which holds counts of rows only, or {@code null} when the pair needs to be compared.
+     */
+    @Nullable
+    CsvComparisonResult get(String target, CsvComparisonSource exp, CsvComparisonSource act) {
+        Entry entry = previous.get(target);
+        State expState = State.of(exp, entry == null ? null : entry.exp);
+        State actState = State.of(act, entry == null ? null : entry.act);
+
+        if (entry != null && expState.isSame(entry.exp) && actState.isSame(entry.act)) {
+            current.put(target, new Entry(expState, actState, entry.counts, entry.flags));
+            return entry.getResult(options);
+        }
+        pending.put(target, new State[]{expState, actState});
+        return null;
+    }
+
+    /**
+     * Record the result of file pair which was compared.
+     *
+     * @param target The relative path of file pair.
+     * @param result The {@link CsvComparisonResult} of file pair.
+     */
+    void put(String target, CsvComparisonResult result) {
+        State[] states = pending.remove(target);
+
+        if (states != null) {
+            current.put(target, Entry.of(states[0], states[1], result));
+        }
+    }
+
+    /**
+     * Write file pairs of this bulk comparison into manifest file, replace the existing one.
+     * File pairs which no longer exist are dropped.
+     */
+    void save() {
+        try {
+            Path dir = Commons.createDir(file.toAbsolutePath().getParent());
+            Path tmpFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                    out.writeLong(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeLong(fingerprint);
+                    out.writeInt(current.size());
+
+                    for (Map.Entry<String, Entry> entry : new TreeMap<>(current).entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        entry.getValue().write(out);
+                    }
+                }
+                move(tmpFile, file);
+            } finally {
+                Files.deleteIfExists(tmpFile);
+            }
+        } catch (IOException ex) {
+            String msg = String.format("Error occurred while writing manifest: %s", Commons.getRelative(file));
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private static long getFingerprint(CsvComparisonOptions options) {
+        // Results of file pairs depend on how CSV files are parsed and rows are paired
+        return CsvIndex.hash(String.join("\u0000",
+                String.valueOf(options.charset()),
+                String.valueOf(options.parserSettings()),
+                String.valueOf(options.selectedColumns()),
+                String.valueOf(options.columnIds()),
+                String.valueOf(options.duplicateKeys()),
+                String.valueOf(options.resultOptions().retention()),
+                String.valueOf(options.failFast())));
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    //===============================================================================//
+
+    /**
+     * Size, modified time and content hash of the file is stored on disk, size is -1 when CSV is absent.
+     */
+    private static class State {
+        private static final State ABSENT = new State(-1, 0, 0);
+        private final long size;
+        private final long modified;
+        private final long hash;
+
+        private State(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        static State of(CsvComparisonSource source, @Nullable State last) {
+            if (source.isAbsent() || source.getFile() == null) {
+                return ABSENT;
+            }
+            File storage = CsvInput.getStorage(source.getFile());
+            long size = storage.length();
+            long modified = storage.lastModified();
+
+            if (last != null && last.size == size && last.modified == modified) {
+                return last;
+            }
+            try {
+                return new State(size, modified, CsvInput.hashContent(storage));
+            } catch (IOException ex) {
+                String msg = String.format("Error occurred while hashing CSV: %s", Commons.getRelative(storage));
+                log.error(msg);
+                throw new RuntimeError(msg, ex);
+            }
+        }
+
+        static State read(DataInput in) throws IOException {
+            return new State(in.readLong(), in.readLong(), in.readLong());
+        }
+
+        boolean isSame(State other) {
+            return size == other.size && hash == other.hash;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeLong(hash);
+        }
+    }
+
+    /**
+     * States of both files and the result summary of a file pair.
+     */
+    private static class Entry {
+        private final State exp;
+        private final State act;
+        private final long[] counts;
+        private final int flags;
+
+        private Entry(State exp, State act, long[] counts, int flags) {
+            this.exp = exp;
+            this.act = act;
+            this.counts = counts;
+            this.flags = flags;
+        }
+
+        static Entry of(State exp, State act, CsvComparisonResult result) {
+            long[] counts = {
+                    result.getKeptCount(),
+                    result.getDeletedCount(),
+                    result.getInsertedCount(),
+                    result.getModifiedCount(),
+                    result.getDuplicatedCount()
+            };
+            int flags = (result.hasDeletion() ? 1 : 0)
+                    | (result.hasInsertion() ? 2 : 0)
+                    | (result.hasModification() ? 4 : 0)
+                    | (result.hasDuplication() ? 8 : 0);
+            return new Entry(exp, act, counts, flags);
+        }
+
+        static Entry read(DataInput in) throws IOException {
+            State exp = State.read(in);
+            State act = State.read(in);
+            long[] counts = new long[5];
+
+            for (int index = 0; index < counts.length; index++) {
+                counts[index] = in.readLong();
+            }
+            return new Entry(exp, act, counts, in.readByte());
+        }
+
+        void write(DataOutput out) throws IOException {
+            exp.write(out);
+            act.write(out);
+
+            for (long count : counts) {
+                out.writeLong(count);
+            }
+            out.writeByte(flags);
+        }
+
+        CsvComparisonResult getResult(CsvComparisonOptions options) {
+            CsvResult.Collector collector = CsvResult.Collector.of(options);
+            collector.keptCount = counts[0];
+            collector.deletedCount = counts[1];
+            collector.insertedCount = counts[2];
+            collector.modifiedCount = counts[3];
+            collector.duplicatedCount = counts[4];
+            collector.isDeleted = (flags & 1) != 0;
+            collector.isInserted = (flags & 2) != 0;
+            collector.isModified = (flags & 4) != 0;
+            collector.isDuplicated = (flags & 8) != 0;
+            return new CsvResult(collector);
+        }
+    }
+}
@@ -0,0 +1,786 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Commons;
+import com.github.ngoanh2n.RuntimeError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Off-heap index of expected rows by key, stored in a memory-mapped file.<br>
+ * The index file holds encoded rows followed by an open-addressing table of key hashes and row offsets,
+ * then path, headers and key columns of the expected CSV file. It's reused while the expected CSV file and parsing options are unchanged.
+ * Only a bit per slot for matched rows lives on the Java heap.
+ * When duplicated keys are kept, rows are numbered in file order and chained per key and per identical cells instead,
+ * chains are stored in the index file after the table, and only a bit per row and cursors of chains past their matched rows live on the Java heap.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+class CsvMappedIndex implements CsvIndex {
+    private static final Logger log = LoggerFactory.getLogger(CsvMappedIndex.class);
+    private static final long MAGIC = 0x4353564944583031L;
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 128;
+    private static final int SLOT_SIZE = 16;
+    private static final int ROW_SIZE = 24;
+    private static final int FIRST = 8;
+    private static final int KEY_NEXT = 12;
+    private static final int SAME_NEXT = 16;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int NULL_CELL = -1;
+    private final MappedByteBuffer[] chunks;
+    private final Meta meta;
+    private final CsvKey key;
+    private final int[] keyColumns;
+    private final BitSet matched;
+    private final BitSet matchedKeys;
+    private final Map<Integer, Integer> keyCursors;
+    private final Map<Integer, Integer> sameCursors;
+
+    private CsvMappedIndex(MappedByteBuffer[] chunks, Meta meta) {
+        this.chunks = chunks;
+        this.meta = meta;
+        this.key = new CsvKey(meta.columns);
+        this.keyColumns = key.getSortedColumns();
+        this.matched = new BitSet(meta.duplicates ? meta.size : meta.capacity);
+        this.matchedKeys = meta.duplicates ? new BitSet(meta.size) : null;
+        this.keyCursors = meta.duplicates ? new HashMap<>() : null;
+        this.sameCursors = meta.duplicates ? new HashMap<>() : null;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Open the index of expected CSV file from directory, build it when it's missing or stale.
+     *
+     * @param dir     The directory where index files are persisted.
+     * @param options The {@link CsvComparisonOptions} to parse expected CSV file.
+     * @param file    The expected CSV file.
+     * @param source  The {@link CsvSource} streams rows of expected CSV file.
+     * @return A {@link CsvMappedIndex}.
+     */
+    static CsvMappedIndex open(Path dir, CsvComparisonOptions options, File file, CsvSource source) {
+        long fingerprint = getFingerprint(options, file, source.getHeaders());
+        String name = file.getName() + "." + Long.toHexString(CsvIndex.hash(file.getAbsolutePath() + fingerprint)) + ".idx";
+        Path index = Commons.createDir(dir).resolve(name);
+        CsvMappedIndex mappedIndex = load(index);
+
+        if (mappedIndex != null && mappedIndex.isValid(options)) {
+            log.debug("Reuse index: {}", Commons.getRelative(index));
+            return mappedIndex;
+        }
+        return compile(index, options, file, source);
+    }
+
+    /**
+     * Build the index of expected CSV file into index file, replace the existing one.
+     *
+     * @param index   The index file.
+     * @param options The {@link CsvComparisonOptions} to parse expected CSV file.
+     * @param file    The expected CSV file.
+     * @param source  The {@link CsvSource} streams rows of expected CSV file.
+     * @return A {@link CsvMappedIndex}.
+     */
+    static CsvMappedIndex compile(Path index, CsvComparisonOptions options, File file, CsvSource source) {
+        log.debug("Build index: {}", Commons.getRelative(index));
+
+        try {
+            Path tmpIndex = Files.createTempFile(index.toAbsolutePath().getParent(), index.getFileName().toString(), ".tmp");
+
+            try {
+                build(tmpIndex, options, file, source);
+                move(tmpIndex, index);
+            } finally {
+                Files.deleteIfExists(tmpIndex);
+            }
+        } catch (IOException ex) {
+            String msg = String.format("Error occurred while indexing CSV: %s", Commons.getRelative(file));
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+        CsvMappedIndex mappedIndex = load(index);
+
+        if (mappedIndex == null) {
+            String msg = String.format("Index is incomplete: %s", Commons.getRelative(index));
+            log.error(msg);
+            throw new RuntimeError(msg);
+        }
+        return mappedIndex;
+    }
+
+    /**
+     * Map an index file which was built before.
+     *
+     * @param index The index file.
+     * @return A {@link CsvMappedIndex}, or {@code null} when the file is missing or isn't a complete index.
+     */
+    static CsvMappedIndex load(Path index) {
+        try {
+            if (!Files.isRegularFile(index) || Files.size(index) < HEADER_SIZE) {
+                return null;
+            }
+            Meta meta = readMeta(index);
+            return meta == null ? null : new CsvMappedIndex(map(index, FileChannel.MapMode.READ_ONLY, meta.tableEnd), meta);
+        } catch (IOException ex) {
+            String msg = String.format("Error occurred while loading index: %s", Commons.getRelative(index));
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+
+    /**
+     * Check the expected CSV file is unchanged since the index was built, and it's parsed the same way.<br>
+     * The content hash is only computed when size is the same but modified time isn't.
+     *
+     * @param options The {@link CsvComparisonOptions} to parse expected CSV file.
+     * @return Indicate the index still represents expected CSV file.
+     */
+    boolean isValid(CsvComparisonOptions options) {
+        File file = meta.source;
+        File storage = CsvInput.getStorage(file);
+
+        if (!storage.isFile() || storage.length() != meta.sourceSize) {
+            return false;
+        }
+        if (getFingerprint(options, file, meta.headers) != meta.fingerprint) {
+            return false;
+        }
+        if (storage.lastModified() == meta.sourceModified) {
+            return true;
+        }
+        try {
+            return CsvInput.hashContent(storage) == meta.sourceHash;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Get a view of the same index file without matched rows, for another comparison.
+     *
+     * @return A {@link CsvMappedIndex}.
+     */
+    CsvMappedIndex view() {
+        return new CsvMappedIndex(chunks, meta);
+    }
+
+    File getSource() {
+        return meta.source;
+    }
+
+    String[] getHeaders() {
+        return meta.headers.clone();
+    }
+
+    CsvKey getKey() {
+        return key;
+    }
+
+    @Override
+    public int size() {
+        return meta.size;
+    }
+
+    @Override
+    public int find(String[] row) {
+        long hash = key.hash(row);
+        int mask = meta.capacity - 1;
+
+        if (meta.duplicates) {
+            return findDuplicate(hash, row);
+        }
+        for (int slot = (int) hash & mask; getAddress(slot) != 0; slot = (slot + 1) & mask) {
+            if (getHash(slot) == hash && keyEquals(getAddress(slot), row)) {
+                return matched.get(slot) ? -1 : slot;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isMatched(String[] row) {
+        long hash = key.hash(row);
+        int mask = meta.capacity - 1;
+
+        if (meta.duplicates) {
+            int chain = findChain(meta.tableOffset, meta.capacity, hash, row);
+            return chain != -1 && matchedKeys.get(getFirst(meta.tableOffset, chain));
+        }
+
+        for (int slot = (int) hash & mask; getAddress(slot) != 0; slot = (slot + 1) & mask) {
+            if (getHash(slot) == hash && matched.get(slot) && keyEquals(getAddress(slot), row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void match(int slot) {
+        matched.set(slot);
+
+        if (meta.duplicates) {
+            matchedKeys.set(getRowInt(slot, FIRST));
+        }
+    }
+
+    @Override
+    public boolean rowEquals(int slot, String[] row) {
+        long position = getRowAddress(slot);
+
+        if (getInt(position) != row.length) {
+            return false;
+        }
+        position += 4;
+
+        for (String cell : row) {
+            int length = getInt(position);
+            position += 4;
+
+            if (length == NULL_CELL) {
+                if (cell != null) {
+                    return false;
+                }
+                continue;
+            }
+            if (cell == null || !charsEqual(position, length, cell)) {
+                return false;
+            }
+            position += 2L * length;
+        }
+        return true;
+    }
+
+    @Override
+    public String[] getRow(int slot) {
+        return read(getRowAddress(slot));
+    }
+
+    @Override
+    public void forEachUnmatched(Consumer<String[]> action) {
+        if (meta.duplicates) {
+            for (int row = 0; row < meta.size; row++) {
+                if (!matched.get(row)) {
+                    action.accept(read(getAddress(meta.rowsOffset + (long) row * ROW_SIZE)));
+                }
+            }
+            return;
+        }
+        for (int slot = 0; slot < meta.capacity; slot++) {
+            long address = getAddress(slot);
+
+            if (address != 0 && !matched.get(slot)) {
+                action.accept(read(address));
+            }
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private static long getFingerprint(CsvComparisonOptions options, File file, String[] headers) {
+        // Rows in index depend on how expected CSV file is parsed
+        return CsvIndex.hash(String.join("\u0000",
+                String.valueOf(CsvSource.getCharset(options, file)),
+                String.valueOf(options.parserSettings()),
+                String.valueOf(options.columnIds()),
+                String.valueOf(options.duplicateKeys()),
+                Arrays.toString(headers)));
+    }
+
+    private static MappedByteBuffer[] map(Path index, FileChannel.MapMode mode, long length) throws IOException {
+        StandardOpenOption[] openOptions = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+
+        try (FileChannel channel = FileChannel.open(index, openOptions)) {
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long position = (long) chunk << CHUNK_SHIFT;
+                chunks[chunk] = channel.map(mode, position, Math.min(CHUNK_SIZE, length - position));
+            }
+            return chunks;
+        }
+    }
+
+    private static Meta readMeta(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // Read until header is full
+            }
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+                return null;
+            }
+            Meta meta = new Meta();
+            meta.columns = new int[header.getInt(12)];
+            meta.sourceSize = header.getLong(16);
+            meta.sourceModified = header.getLong(24);
+            meta.fingerprint = header.getLong(32);
+            meta.tableOffset = header.getLong(40);
+            meta.capacity = header.getInt(48);
+            meta.size = header.getInt(52);
+            meta.sourceHash = header.getLong(56);
+            meta.duplicates = header.getInt(64) != 0;
+            meta.sameCapacity = header.getInt(68);
+            meta.setTableEnd();
+
+            // Headers and source path are stored after the table
+            channel.position(meta.tableEnd);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            meta.source = new File(in.readUTF());
+            meta.headers = new String[in.readInt()];
+
+            for (int column = 0; column < meta.headers.length; column++) {
+                meta.headers[column] = in.readBoolean() ? in.readUTF() : null;
+            }
+            for (int column = 0; column < meta.columns.length; column++) {
+                meta.columns[column] = in.readInt();
+            }
+            return meta;
+        }
+    }
+
+    private static void build(Path index, CsvComparisonOptions options, File file, CsvSource source) throws IOException {
+        CsvKey key = source.getKey();
+        Path entries = Files.createTempFile(index.getParent(), "entries", ".tmp");
+
+        try {
+            long position = HEADER_SIZE;
+            int count = 0;
+
+            try (DataOutputStream rowOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index), BUFFER_SIZE));
+                 DataOutputStream entryOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(entries), BUFFER_SIZE))) {
+                // Header is written at last, after the table is complete
+                rowOut.write(new byte[HEADER_SIZE]);
+                Iterator<String[]> rows = source.getIterator();
+
+                while (rows.hasNext()) {
+                    String[] row = rows.next();
+                    long length = sizeOf(row);
+
+                    if (length > CHUNK_SIZE) {
+                        throw new IOException("Row is too large to index: " + key.format(row));
+                    }
+                    if ((position >>> CHUNK_SHIFT) != ((position + length - 1) >>> CHUNK_SHIFT)) {
+                        // Rows never span mapped chunks
+                        long padding = CHUNK_SIZE - (position & (CHUNK_SIZE - 1));
+                        rowOut.write(new byte[(int) padding]);
+                        position += padding;
+                    }
+                    writeRow(rowOut, row);
+                    entryOut.writeLong(key.hash(row));
+                    entryOut.writeLong(position);
+
+                    if (options.duplicateKeys()) {
+                        entryOut.writeLong(CsvIndex.hash(row));
+                    }
+                    position += length;
+
+                    if (++count > MAX_CAPACITY / 2) {
+                        throw new IOException("Expected CSV has too many rows to index");
+                    }
+                }
+            }
+            Meta meta = new Meta();
+            meta.source = file.getAbsoluteFile();
+            meta.headers = source.getHeaders();
+            meta.columns = key.getColumns();
+            meta.duplicates = options.duplicateKeys();
+            File storage = CsvInput.getStorage(file);
+            meta.sourceSize = storage.length();
+            meta.sourceModified = storage.lastModified();
+            meta.sourceHash = CsvInput.hashContent(storage);
+            meta.fingerprint = getFingerprint(options, file, meta.headers);
+            meta.tableOffset = (position + SLOT_SIZE - 1) & -SLOT_SIZE;
+            meta.capacity = Integer.highestOneBit(Math.max(16, count * 2 - 1)) << 1;
+            meta.sameCapacity = meta.duplicates ? meta.capacity : 0;
+            meta.size = meta.duplicates ? count : 0;
+            meta.setTableEnd();
+
+            MappedByteBuffer[] chunks = map(index, FileChannel.MapMode.READ_WRITE, meta.tableEnd);
+            CsvMappedIndex table = new CsvMappedIndex(chunks, meta);
+
+            try (DataInputStream entryIn = new DataInputStream(new BufferedInputStream(Files.newInputStream(entries), BUFFER_SIZE))) {
+                for (int entry = 0; entry < count; entry++) {
+                    if (meta.duplicates) {
+                        table.chain(entry, entryIn.readLong(), entryIn.readLong(), entryIn.readLong());
+                    } else if (table.insert(entryIn.readLong(), entryIn.readLong())) {
+                        meta.size++;
+                    }
+                }
+            }
+            try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+                channel.position(meta.tableEnd);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                out.writeUTF(meta.source.getPath());
+                out.writeInt(meta.headers.length);
+
+                for (String header : meta.headers) {
+                    out.writeBoolean(header != null);
+                    if (header != null) {
+                        out.writeUTF(header);
+                    }
+                }
+                for (int column : meta.columns) {
+                    out.writeInt(column);
+                }
+                out.flush();
+                channel.force(true);
+            }
+            MappedByteBuffer header = chunks[0];
+            header.putInt(8, VERSION);
+            header.putInt(12, meta.columns.length);
+            header.putLong(16, meta.sourceSize);
+            header.putLong(24, meta.sourceModified);
+            header.putLong(32, meta.fingerprint);
+            header.putLong(40, meta.tableOffset);
+            header.putInt(48, meta.capacity);
+            header.putInt(52, meta.size);
+            header.putLong(56, meta.sourceHash);
+            header.putInt(64, meta.duplicates ? 1 : 0);
+            header.putInt(68, meta.sameCapacity);
+            table.force();
+            // Magic number marks the index is complete
+            header.putLong(0, MAGIC);
+            header.force();
+        } finally {
+            Files.deleteIfExists(entries);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long sizeOf(String[] row) {
+        long size = 4;
+
+        for (String cell : row) {
+            size += 4 + (cell == null ? 0 : 2L * cell.length());
+        }
+        return size;
+    }
+
+    private static void writeRow(DataOutputStream out, String[] row) throws IOException {
+        out.writeInt(row.length);
+
+        for (String cell : row) {
+            if (cell == null) {
+                out.writeInt(NULL_CELL);
+            } else {
+                out.writeInt(cell.length());
+                out.writeChars(cell);
+            }
+        }
+    }
+
+    private boolean insert(long hash, long address) {
+        int mask = meta.capacity - 1;
+
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            long existing = getAddress(slot);
+
+            if (existing == 0) {
+                putLong(meta.tableOffset + (long) slot * SLOT_SIZE, hash);
+                putLong(meta.tableOffset + (long) slot * SLOT_SIZE + 8, address);
+                return true;
+            }
+            if (getHash(slot) == hash && keysEqual(existing, address)) {
+                // Same as heap index, the last row wins when key is duplicated
+                putLong(meta.tableOffset + (long) slot * SLOT_SIZE + 8, address);
+                return false;
+            }
+        }
+    }
+
+    private void chain(int row, long hash, long address, long sameHash) {
+        long position = meta.rowsOffset + (long) row * ROW_SIZE;
+        putLong(position, address);
+        putInt(position + KEY_NEXT, -1);
+        putInt(position + SAME_NEXT, -1);
+        putInt(position + FIRST, append(meta.tableOffset, meta.capacity, hash, row, address, KEY_NEXT));
+        append(meta.sameOffset, meta.sameCapacity, sameHash, row, 0, SAME_NEXT);
+    }
+
+    /**
+     * Append a row to the chain of hash in table, or to a new chain.
+     * Chains of key table are also told apart by key cells of row at address, chains of rows having the same cells aren't.
+     *
+     * @return The first row of chain.
+     */
+    private int append(long offset, int capacity, long hash, int row, long address, int next) {
+        int mask = capacity - 1;
+
+        for (int chain = (int) hash & mask; ; chain = (chain + 1) & mask) {
+            long position = offset + (long) chain * SLOT_SIZE;
+            int first = getFirst(offset, chain);
+
+            if (first == -1) {
+                putLong(position, hash);
+                putInt(position + 8, row + 1);
+                putInt(position + 12, row);
+                return row;
+            }
+            if (getLong(position) == hash && (address == 0 || keysEqual(getRowAddress(first), address))) {
+                putInt(meta.rowsOffset + (long) getInt(position + 12) * ROW_SIZE + next, row);
+                putInt(position + 12, row);
+                return first;
+            }
+        }
+    }
+
+    private int findDuplicate(long hash, String[] row) {
+        // Rows having the same cells are paired first
+        int sameChain = findChain(meta.sameOffset, meta.sameCapacity, CsvIndex.hash(row), null);
+
+        if (sameChain != -1) {
+            for (int same = next(sameCursors, meta.sameOffset, sameChain, SAME_NEXT); same != -1; same = getRowInt(same, SAME_NEXT)) {
+                if (!matched.get(same) && rowEquals(same, row)) {
+                    return same;
+                }
+            }
+        }
+        // Then the first unmatched row of the same key in file order
+        int keyChain = findChain(meta.tableOffset, meta.capacity, hash, row);
+        return keyChain == -1 ? -1 : next(keyCursors, meta.tableOffset, keyChain, KEY_NEXT);
+    }
+
+    private int findChain(long offset, int capacity, long hash, String[] row) {
+        int mask = capacity - 1;
+
+        for (int chain = (int) hash & mask; ; chain = (chain + 1) & mask) {
+            int first = getFirst(offset, chain);
+
+            if (first == -1) {
+                return -1;
+            }
+            if (getLong(offset + (long) chain * SLOT_SIZE) == hash && (row == null || keyEquals(getRowAddress(first), row))) {
+                return chain;
+            }
+        }
+    }
+
+    /**
+     * Move cursor of chain past its matched rows, cursors are only kept once they moved.
+     *
+     * @return The first unmatched row of chain, or {@code -1} when all rows were matched.
+     */
+    private int next(Map<Integer, Integer> cursors, long offset, int chain, int next) {
+        Integer cursor = cursors.get(chain);
+        int row = cursor == null ? getFirst(offset, chain) : cursor;
+        int start = row;
+
+        while (row != -1 && matched.get(row)) {
+            row = getRowInt(row, next);
+        }
+        if (row != start) {
+            cursors.put(chain, row);
+        }
+        return row;
+    }
+
+    private int getFirst(long offset, int chain) {
+        return getInt(offset + (long) chain * SLOT_SIZE + 8) - 1;
+    }
+
+    private long getRowAddress(int slot) {
+        return meta.duplicates ? getLong(meta.rowsOffset + (long) slot * ROW_SIZE) : getAddress(slot);
+    }
+
+    private int getRowInt(int row, int field) {
+        return getInt(meta.rowsOffset + (long) row * ROW_SIZE + field);
+    }
+
+    private String[] read(long address) {
+        long position = address;
+        String[] row = new String[getInt(position)];
+        position += 4;
+
+        for (int index = 0; index < row.length; index++) {
+            int length = getInt(position);
+            position += 4;
+
+            if (length != NULL_CELL) {
+                char[] chars = new char[length];
+
+                for (int offset = 0; offset < length; offset++) {
+                    chars[offset] = getChar(position + 2L * offset);
+                }
+                row[index] = new String(chars);
+                position += 2L * length;
+            }
+        }
+        return row;
+    }
+
+    private boolean keyEquals(long address, String[] row) {
+        long position = address + 4;
+        int column = 0;
+
+        // Key columns are visited in row order, so the encoded row is walked once
+        for (int keyColumn : keyColumns) {
+            for (; column < keyColumn; column++) {
+                position = skipCell(position);
+            }
+            int length = getInt(position);
+            String cell = row[keyColumn];
+
+            if (length == NULL_CELL || cell == null) {
+                if (length != NULL_CELL || cell != null) {
+                    return false;
+                }
+            } else if (!charsEqual(position + 4, length, cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean keysEqual(long address, long otherAddress) {
+        long position = address + 4;
+        long otherPosition = otherAddress + 4;
+        int column = 0;
+
+        for (int keyColumn : keyColumns) {
+            for (; column < keyColumn; column++) {
+                position = skipCell(position);
+                otherPosition = skipCell(otherPosition);
+            }
+            int length = getInt(position);
+
+            if (length != getInt(otherPosition)) {
+                return false;
+            }
+            for (int index = 0; index < length; index++) {
+                if (getChar(position + 4 + 2L * index) != getChar(otherPosition + 4 + 2L * index)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private long skipCell(long position) {
+        int length = getInt(position);
+        return position + 4 + (length == NULL_CELL ? 0 : 2L * length);
+    }
+
+    private boolean charsEqual(long position, int length, String value) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int index = 0; index < length; index++) {
+            if (getChar(position + 2L * index) != value.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long getHash(int slot) {
+        return getLong(meta.tableOffset + (long) slot * SLOT_SIZE);
+    }
+
+    private long getAddress(int slot) {
+        return getAddress(meta.tableOffset + (long) slot * SLOT_SIZE + 8);
+    }
+
+    private long getAddress(long position) {
+        return getLong(position);
+    }
+
+    private MappedByteBuffer getChunk(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)];
+    }
+
+    private int getOffset(long position) {
+        return (int) (position & (CHUNK_SIZE - 1));
+    }
+
+    private int getInt(long position) {
+        return getChunk(position).getInt(getOffset(position));
+    }
+
+    private long getLong(long position) {
+        return getChunk(position).getLong(getOffset(position));
+    }
+
+    private char getChar(long position) {
+        return getChunk(position).getChar(getOffset(position));
+    }
+
+    private void putLong(long position, long value) {
+        getChunk(position).putLong(getOffset(position), value);
+    }
+
+    private void putInt(long position, int value) {
+        getChunk(position).putInt(getOffset(position), value);
+    }
+
+    private void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    //===============================================================================//
+
+    private static class Meta {
+        private File source;
+        private String[] headers;
+        private int[] columns;
+        private boolean duplicates;
+        private long sourceSize;
+        private long sourceModified;
+        private long sourceHash;
+        private long fingerprint;
+        private long tableOffset;
+        private long sameOffset;
+        private long rowsOffset;
+        private long tableEnd;
+        private int capacity;
+        private int sameCapacity;
+        private int size;
+
+        /**
+         * Locate table of rows having the same cells and row chains after key table, they only exist when duplicated keys are kept.
+         */
+        private void setTableEnd() {
+            sameOffset = tableOffset + (long) capacity * SLOT_SIZE;
+            rowsOffset = sameOffset + (long) sameCapacity * SLOT_SIZE;
+            tableEnd = rowsOffset + (duplicates ? (long) size * ROW_SIZE : 0);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.RuntimeError;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merge-join expected rows and actual rows which are both sorted by key.<br>
+ * A composite key is ordered by its cells one after another, each cell in {@link CsvComparisonOptions#keyOrder()}.
+ * Only the current row of each side is held in memory, rows out of order are reported as {@link RuntimeError}.
+ * When duplicated keys are kept, rows of the current key of each side are held and paired one to one.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+class CsvMerger {
+    private final CsvProcessor processor;
+    private final CsvKey key;
+    private final Comparator<String> keyOrder;
+    private final boolean duplicates;
+    private final List<String[]> expGroup = new ArrayList<>();
+    private final List<String[]> actGroup = new ArrayList<>();
+    private String[] lastActRow;
+
+    CsvMerger(CsvProcessor processor, CsvKey key, Comparator<String> keyOrder, boolean duplicates) {
+        this.processor = processor;
+        this.key = key;
+        this.keyOrder = keyOrder;
+        this.duplicates = duplicates;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    static Comparator<String> getKeyOrder(CsvComparisonOptions options) {
+        return Comparator.nullsFirst(options.keyOrder());
+    }
+
+    void merge(Iterator<String[]> expRows, Iterator<String[]> actRows) {
+        if (duplicates) {
+            mergeGroups(Iterators.peekingIterator(expRows), Iterators.peekingIterator(actRows));
+            return;
+        }
+        PeekingIterator<String[]> expIterator = Iterators.peekingIterator(expRows);
+        String[] expRow = nextExpRow(expIterator);
+
+        while (actRows.hasNext() && !processor.isStopped()) {
+            String[] actRow = actRows.next();
+            checkActOrder(actRow);
+
+            while (expRow != null && key.compare(expRow, actRow, keyOrder) < 0 && !processor.isStopped()) {
+                processor.rowDeleted(expRow);
+                expRow = nextExpRow(expIterator);
+            }
+            if (expRow != null && key.compare(expRow, actRow, keyOrder) == 0) {
+                processor.rowMatched(expRow, actRow);
+                expRow = nextExpRow(expIterator);
+            } else {
+                processor.rowInserted(actRow);
+            }
+        }
+        while (expRow != null && !processor.isStopped()) {
+            processor.rowDeleted(expRow);
+            expRow = nextExpRow(expIterator);
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private void mergeGroups(PeekingIterator<String[]> expRows, PeekingIterator<String[]> actRows) {
+        nextGroup(expRows, expGroup, "Exp");
+        nextGroup(actRows, actGroup, "Act");
+
+        while ((!expGroup.isEmpty() || !actGroup.isEmpty()) && !processor.isStopped()) {
+            int order = expGroup.isEmpty() ? 1 : actGroup.isEmpty() ? -1 : key.compare(expGroup.get(0), actGroup.get(0), keyOrder);
+
+            if (order < 0) {
+                expGroup.forEach(processor::rowDeleted);
+                nextGroup(expRows, expGroup, "Exp");
+            } else if (order > 0) {
+                actGroup.forEach(processor::rowInserted);
+                nextGroup(actRows, actGroup, "Act");
+            } else {
+                pairGroups();
+                nextGroup(expRows, expGroup, "Exp");
+                nextGroup(actRows, actGroup, "Act");
+            }
+        }
+    }
+
+    private void nextGroup(PeekingIterator<String[]> rows, List<String[]> group, String side) {
+        group.clear();
+
+        if (rows.hasNext()) {
+            String[] row = rows.next();
+            group.add(row);
+
+            while (rows.hasNext()) {
+                String[] nextRow = rows.peek();
+                int order = key.compare(nextRow, row, keyOrder);
+
+                if (order > 0) {
+                    break;
+                }
+                if (order < 0) {
+                    String msg = String.format("%s CSV is not sorted by columnId: '%s' is after '%s'", side, key.format(nextRow), key.format(row));
+                    throw new RuntimeError(msg);
+                }
+                group.add(rows.next());
+            }
+        }
+    }
+
+    private void pairGroups() {
+        // Pair rows having the same cells first, then the others in file order
+        if (expGroup.size() == 1) {
+            for (int actIndex = 0; actIndex < actGroup.size(); actIndex++) {
+                if (Arrays.equals(expGroup.get(0), actGroup.get(actIndex))) {
+                    processor.rowKept(actGroup.get(actIndex));
+                    expGroup.set(0, null);
+                    actGroup.set(actIndex, null);
+                    break;
+                }
+            }
+        } else {
+            // Exp rows are looked up by cells, a key repeated in many rows isn't compared row by row
+            Map<List<String>, Deque<Integer>> sameRows = new HashMap<>();
+
+            for (int expIndex = 0; expIndex < expGroup.size(); expIndex++) {
+                sameRows.computeIfAbsent(Arrays.asList(expGroup.get(expIndex)), cells -> new ArrayDeque<>()).add(expIndex);
+            }
+            for (int actIndex = 0; actIndex < actGroup.size(); actIndex++) {
+                String[] actRow = actGroup.get(actIndex);
+                Deque<Integer> expIndexes = sameRows.get(Arrays.asList(actRow));
+
+                if (expIndexes != null && !expIndexes.isEmpty()) {
+                    processor.rowKept(actRow);
+                    expGroup.set(expIndexes.poll(), null);
+                    actGroup.set(actIndex, null);
+                }
+            }
+        }
+        int expIndex = 0;
+
+        for (String[] actRow : actGroup) {
+            if (actRow == null) {
+                continue;
+            }
+            while (expIndex < expGroup.size() && expGroup.get(expIndex) == null) {
+                expIndex++;
+            }
+            if (expIndex < expGroup.size()) {
+                processor.rowMatched(expGroup.get(expIndex), actRow);
+                expGroup.set(expIndex++, null);
+            } else {
+                processor.rowDuplicated(actRow);
+            }
+        }
+        for (String[] expRow : expGroup) {
+            if (expRow != null) {
+                processor.rowDuplicated(expRow);
+            }
+        }
+    }
+
+    private String[] nextExpRow(PeekingIterator<String[]> expRows) {
+        if (!expRows.hasNext()) {
+            return null;
+        }
+        String[] expRow = expRows.next();
+
+        while (expRows.hasNext()) {
+            String[] nextRow = expRows.peek();
+            int order = key.compare(nextRow, expRow, keyOrder);
+
+            if (order > 0) {
+                break;
+            }
+            if (order < 0) {
+                String msg = String.format("Exp CSV is not sorted by columnId: '%s' is after '%s'", key.format(nextRow), key.format(expRow));
+                throw new RuntimeError(msg);
+            }
+            // Same as hash comparison, the last expected row wins when key is duplicated
+            expRow = expRows.next();
+        }
+        return expRow;
+    }
+
+    private void checkActOrder(String[] actRow) {
+        if (lastActRow != null && key.compare(actRow, lastActRow, keyOrder) < 0) {
+            String msg = String.format("Act CSV is not sorted by columnId: '%s' is after '%s'", key.format(actRow), key.format(lastActRow));
+            throw new RuntimeError(msg);
+        }
+        lastActRow = actRow;
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.ngoanh2n.csv;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measure time of callbacks to a visitor, it's used when comparison is measured by {@link CsvComparisonMetrics}.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+final class CsvMeteredVisitor implements CsvComparisonVisitor {
+    private final CsvComparisonVisitor visitor;
+    private final LongAdder nanos = new LongAdder();
+
+    CsvMeteredVisitor(CsvComparisonVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    @Override
+    public void comparisonStarted(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        long starting = System.nanoTime();
+        visitor.comparisonStarted(options, exp, act);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowKept(CsvComparisonOptions options, String[] headers, String[] row) {
+        long starting = System.nanoTime();
+        visitor.rowKept(options, headers, row);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowDeleted(CsvComparisonOptions options, String[] headers, String[] row) {
+        long starting = System.nanoTime();
+        visitor.rowDeleted(options, headers, row);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowInserted(CsvComparisonOptions options, String[] headers, String[] row) {
+        long starting = System.nanoTime();
+        visitor.rowInserted(options, headers, row);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowModified(CsvComparisonOptions options, String[] headers, String[] row, CellDiffs diffs) {
+        long starting = System.nanoTime();
+        visitor.rowModified(options, headers, row, diffs);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowDuplicated(CsvComparisonOptions options, String[] headers, String[] row) {
+        long starting = System.nanoTime();
+        visitor.rowDuplicated(options, headers, row);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public boolean visitsKeptRows() {
+        return visitor.visitsKeptRows();
+    }
+
+    @Override
+    public boolean batchRows() {
+        return visitor.batchRows();
+    }
+
+    @Override
+    public void rowsKept(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        long starting = System.nanoTime();
+        visitor.rowsKept(options, headers, rows, count);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowsDeleted(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        long starting = System.nanoTime();
+        visitor.rowsDeleted(options, headers, rows, count);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowsInserted(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        long starting = System.nanoTime();
+        visitor.rowsInserted(options, headers, rows, count);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowsModified(CsvComparisonOptions options, String[] headers, String[][] rows, CellDiffs[] diffs, int count) {
+        long starting = System.nanoTime();
+        visitor.rowsModified(options, headers, rows, diffs, count);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void rowsDuplicated(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+        long starting = System.nanoTime();
+        visitor.rowsDuplicated(options, headers, rows, count);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void comparisonFinished(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, CsvComparisonResult result) {
+        long starting = System.nanoTime();
+        visitor.comparisonFinished(options, exp, act, result);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void comparisonCancelled(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        long starting = System.nanoTime();
+        visitor.comparisonCancelled(options, exp, act);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    @Override
+    public void comparisonFailed(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act, Throwable error) {
+        long starting = System.nanoTime();
+        visitor.comparisonFailed(options, exp, act, error);
+        nanos.add(System.nanoTime() - starting);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    static void flush(List<CsvComparisonVisitor> visitors, CsvMetrics metrics) {
+        for (CsvComparisonVisitor visitor : visitors) {
+            if (visitor instanceof CsvMeteredVisitor) {
+                CsvMeteredVisitor metered = (CsvMeteredVisitor) visitor;
+                metrics.addVisitor(metered.visitor.getClass(), metered.nanos.sum());
+            }
+        }
+    }
+}
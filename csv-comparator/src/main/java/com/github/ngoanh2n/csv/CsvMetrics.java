@@ -0,0 +1,263 @@
+package com.github.ngoanh2n.csv;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Metrics of comparisons, kept in memory.<br>
+ * It's the metrics of a comparison passed to {@link CsvComparisonMetrics}, and also a {@link CsvComparisonMetrics}
+ * which sums metrics of all comparisons it receives.
+ * <ul>
+ *     <li>Parse time: reading and parsing rows of a CSV, per side</li>
+ *     <li>Index time: indexing, sorting or partitioning expected rows, without parsing</li>
+ *     <li>Probe time: pairing actual rows with expected rows and classifying them, callbacks of visitors for rows included</li>
+ *     <li>Visitor time: callbacks of a visitor, per visitor class</li>
+ *     <li>Peak index size: the most expected rows indexed at once in a comparison</li>
+ * </ul>
+ * Times of work runs concurrently in a comparison are summed, e.g. partitions are compared in parallel.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+public final class CsvMetrics implements CsvComparisonMetrics {
+    static final CsvComparisonMetrics NOOP = (exp, act, metrics) -> { };
+    private final Map<Class<? extends CsvComparisonVisitor>, Long> visitorNanos = new LinkedHashMap<>();
+    private long comparisons;
+    private long expParseNanos;
+    private long actParseNanos;
+    private long indexNanos;
+    private long probeNanos;
+    private long totalNanos;
+    private long expRows;
+    private long actRows;
+    private long expBytes;
+    private long actBytes;
+    private long indexSize;
+
+    /**
+     * Create an empty {@link CsvMetrics}.
+     */
+    public CsvMetrics() { /**/ }
+
+    //-------------------------------------------------------------------------------//
+
+    @Override
+    public void comparisonMeasured(CsvComparisonSource exp, CsvComparisonSource act, CsvMetrics metrics) {
+        add(metrics);
+    }
+
+    /**
+     * Get number of comparisons are measured.
+     *
+     * @return The comparison count.
+     */
+    public synchronized long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * Get time of reading and parsing expected CSV.
+     *
+     * @return The {@link Duration}.
+     */
+    public synchronized Duration getExpParseTime() {
+        return Duration.ofNanos(expParseNanos);
+    }
+
+    /**
+     * Get time of reading and parsing actual CSV.
+     *
+     * @return The {@link Duration}.
+     */
+    public synchronized Duration getActParseTime() {
+        return Duration.ofNanos(actParseNanos);
+    }
+
+    /**
+     * Get time of indexing, sorting or partitioning expected rows, without parsing.
+     *
+     * @return The {@link Duration}.
+     */
+    public synchronized Duration getIndexTime() {
+        return Duration.ofNanos(indexNanos);
+    }
+
+    /**
+     * Get time of pairing actual rows with expected rows and classifying them.
+     *
+     * @return The {@link Duration}.
+     */
+    public synchronized Duration getProbeTime() {
+        return Duration.ofNanos(probeNanos);
+    }
+
+    /**
+     * Get time of callbacks per visitor class.
+     *
+     * @return The {@link Duration} by visitor class.
+     */
+    public synchronized Map<Class<? extends CsvComparisonVisitor>, Duration> getVisitorTimes() {
+        Map<Class<? extends CsvComparisonVisitor>, Duration> times = new LinkedHashMap<>();
+        visitorNanos.forEach((type, nanos) -> times.put(type, Duration.ofNanos(nanos)));
+        return Collections.unmodifiableMap(times);
+    }
+
+    /**
+     * Get time of comparisons from start to end.
+     *
+     * @return The {@link Duration}.
+     */
+    public synchronized Duration getTotalTime() {
+        return Duration.ofNanos(totalNanos);
+    }
+
+    /**
+     * Get number of rows are parsed from expected CSV and actual CSV, header rows excluded.
+     *
+     * @return The row count.
+     */
+    public synchronized long getRows() {
+        return expRows + actRows;
+    }
+
+    /**
+     * Get number of rows are parsed per second of total time.
+     *
+     * @return The throughput.
+     */
+    public synchronized double getRowsPerSecond() {
+        return totalNanos == 0 ? 0 : (expRows + actRows) * 1e9 / totalNanos;
+    }
+
+    /**
+     * Get number of bytes are read from expected CSV and actual CSV, after decompressing.
+     * Characters from {@link java.io.Reader} aren't counted.
+     *
+     * @return The byte count.
+     */
+    public synchronized long getBytesRead() {
+        return expBytes + actBytes;
+    }
+
+    /**
+     * Get the most expected rows are indexed at once in a comparison.
+     *
+     * @return The index size.
+     */
+    public synchronized long getPeakIndexSize() {
+        return indexSize;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new LinkedHashMap<String, Object>() {{
+            put("comparisons", comparisons);
+            put("expParse", getExpParseTime());
+            put("actParse", getActParseTime());
+            put("index", getIndexTime());
+            put("probe", getProbeTime());
+            put("visitors", getVisitorTimes());
+            put("total", getTotalTime());
+            put("rowsPerSecond", Math.round(getRowsPerSecond()));
+            put("bytesRead", getBytesRead());
+            put("peakIndexSize", indexSize);
+        }}.toString();
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    static boolean isEnabled(CsvComparisonOptions options) {
+        return options.metrics() != NOOP;
+    }
+
+    synchronized void addExpParse(CsvSource source) {
+        expParseNanos += source.getIterator().getNanos();
+        expRows += source.getRowCount();
+        expBytes += source.getIterator().getBytes();
+    }
+
+    void addActParse(CsvSource source) {
+        addActParse(source.getIterator().getNanos(), source.getRowCount(), source.getIterator().getBytes());
+    }
+
+    void addActParse(CsvIterator rows) {
+        addActParse(rows.getNanos(), rows.getRows(), rows.getBytes());
+    }
+
+    synchronized void addActParse(long nanos, long rows, long bytes) {
+        actParseNanos += Math.max(0, nanos);
+        actRows += rows;
+        actBytes += bytes;
+    }
+
+    /**
+     * Add time of indexing, and size of an index lives at the same time as other indexes of the comparison.
+     */
+    synchronized void addIndex(long nanos, long size) {
+        indexNanos += Math.max(0, nanos);
+        indexSize += size;
+    }
+
+    synchronized void addProbe(long nanos) {
+        probeNanos += Math.max(0, nanos);
+    }
+
+    synchronized void addVisitor(Class<? extends CsvComparisonVisitor> type, long nanos) {
+        visitorNanos.merge(type, nanos, Long::sum);
+    }
+
+    synchronized void addTotal(long nanos) {
+        comparisons++;
+        totalNanos += nanos;
+    }
+
+    /**
+     * Sum metrics of another comparison, the peak index size is the larger one.<br>
+     * Metrics of other comparison are copied under its own lock first, so two metrics adding each other never deadlock.
+     */
+    void add(CsvMetrics other) {
+        if (other == this) {
+            return;
+        }
+        CsvMetrics copy = other.copy();
+        synchronized (this) {
+            copy.visitorNanos.forEach((type, nanos) -> visitorNanos.merge(type, nanos, Long::sum));
+            comparisons += copy.comparisons;
+            expParseNanos += copy.expParseNanos;
+            actParseNanos += copy.actParseNanos;
+            indexNanos += copy.indexNanos;
+            probeNanos += copy.probeNanos;
+            totalNanos += copy.totalNanos;
+            expRows += copy.expRows;
+            actRows += copy.actRows;
+            expBytes += copy.expBytes;
+            actBytes += copy.actBytes;
+            indexSize = Math.max(indexSize, copy.indexSize);
+        }
+    }
+
+    private synchronized CsvMetrics copy() {
+        CsvMetrics copy = new CsvMetrics();
+        copy.visitorNanos.putAll(visitorNanos);
+        copy.comparisons = comparisons;
+        copy.expParseNanos = expParseNanos;
+        copy.actParseNanos = actParseNanos;
+        copy.indexNanos = indexNanos;
+        copy.probeNanos = probeNanos;
+        copy.totalNanos = totalNanos;
+        copy.expRows = expRows;
+        copy.actRows = actRows;
+        copy.expBytes = expBytes;
+        copy.actBytes = actBytes;
+        copy.indexSize = indexSize;
+        return copy;
+    }
+}
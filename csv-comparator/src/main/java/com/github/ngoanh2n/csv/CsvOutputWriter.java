@@ -0,0 +1,207 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Commons;
+import com.github.ngoanh2n.RuntimeError;
+import com.univocity.parsers.csv.CsvWriter;
+import com.univocity.parsers.csv.CsvWriterSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write rows to output files on a dedicated thread.<br>
+ * Rows are handed over one by one or in batches through a queue bounded by number of rows,
+ * so the comparison thread is blocked when the writer thread falls behind.
+ * The writer thread drains rows in batches into buffered files, compressed by {@link CsvComparisonResultOptions#compression()}.
+ * An error on the writer thread is rethrown by {@link #close()}, rows written afterwards are dropped.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+class CsvOutputWriter {
+    private static final Logger log = LoggerFactory.getLogger(CsvOutputWriter.class);
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 1024;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final Rows END = new Rows(null, null, new String[0][]);
+    private final BlockingQueue<Rows> queue = new LinkedBlockingQueue<>();
+    private final Semaphore permits = new Semaphore(QUEUE_CAPACITY);
+    private final Map<String, CsvWriter> writers = new HashMap<>();
+    private final CsvWriterSettings settings = new CsvWriterSettings();
+    private final Path location;
+    private final Charset charset;
+    private final CsvComparisonResultOptions.Compression compression;
+    private final boolean includeHeaders;
+    private final Thread thread;
+    private volatile Throwable failure;
+
+    CsvOutputWriter(Path location, CsvComparisonOptions options) {
+        this.location = location;
+        this.charset = options.charset() == null ? Charset.defaultCharset() : options.charset();
+        this.compression = options.resultOptions().compression();
+        this.includeHeaders = options.resultOptions().includeHeaders();
+        this.thread = new Thread(this::drain, "csv-output-" + location.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    void write(String fileName, String[] headers, String[] row) {
+        enqueue(new Rows(fileName, headers, new String[][]{row}));
+    }
+
+    void write(String fileName, String[] headers, String[][] rows, int count) {
+        enqueue(new Rows(fileName, headers, Arrays.copyOf(rows, count)));
+    }
+
+    void close() {
+        enqueue(END);
+
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            String msg = "Interrupted while writing outputs";
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+        if (failure != null) {
+            String msg = String.format("Error occurred while writing outputs: %s", Commons.getRelative(location));
+            log.error(msg);
+            throw new RuntimeError(msg, failure);
+        }
+    }
+
+    /**
+     * Stop writing without waiting for queued rows, output files are closed with rows written so far.
+     */
+    void abort() {
+        thread.interrupt();
+
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            // Writer thread still ends by itself
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private void enqueue(Rows rows) {
+        try {
+            // Wait for space in queue, unless writer thread has failed and stopped draining
+            while (failure == null && !permits.tryAcquire(rows.permits, 100, TimeUnit.MILLISECONDS)) {
+                if (!thread.isAlive()) {
+                    return;
+                }
+            }
+            if (failure == null) {
+                queue.add(rows);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            String msg = "Interrupted while writing outputs";
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+
+    private void drain() {
+        List<Rows> batch = new ArrayList<>(BATCH_SIZE);
+
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+
+                for (Rows rows : batch) {
+                    if (rows == END) {
+                        closeWriters();
+                        return;
+                    }
+                    CsvWriter writer = getWriter(rows);
+
+                    for (String[] row : rows.cells) {
+                        writer.writeRow(row);
+                    }
+                    permits.release(rows.permits);
+                }
+                batch.clear();
+            }
+        } catch (Throwable ex) {
+            failure = ex;
+            queue.clear();
+            closeWriters();
+        }
+    }
+
+    private CsvWriter getWriter(Rows rows) throws IOException {
+        CsvWriter writer = writers.get(rows.fileName);
+
+        if (writer == null) {
+            Path file = Commons.createDir(location).resolve(rows.fileName + compression.getExtension());
+            OutputStream os = Files.newOutputStream(file);
+
+            if (compression == CsvComparisonResultOptions.Compression.GZIP) {
+                os = new GZIPOutputStream(os, BUFFER_SIZE);
+            }
+            os = new BufferedOutputStream(os, BUFFER_SIZE);
+            writer = new CsvWriter(os, charset, settings);
+            writers.put(rows.fileName, writer);
+
+            if (rows.headers.length > 0 && includeHeaders) {
+                writer.writeRow(rows.headers);
+            }
+        }
+        return writer;
+    }
+
+    private void closeWriters() {
+        for (CsvWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (RuntimeException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+        writers.clear();
+    }
+
+    //===============================================================================//
+
+    private static final class Rows {
+        private final String fileName;
+        private final String[] headers;
+        private final String[][] cells;
+        private final int permits;
+
+        private Rows(String fileName, String[] headers, String[][] cells) {
+            this.fileName = fileName;
+            this.headers = headers;
+            this.cells = cells;
+            this.permits = Math.min(cells.length, QUEUE_CAPACITY);
+        }
+    }
+}
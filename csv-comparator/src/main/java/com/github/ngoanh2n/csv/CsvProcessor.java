@@ -3,9 +3,16 @@ package com.github.ngoanh2n.csv;
 import com.univocity.parsers.common.ParsingContext;
 import com.univocity.parsers.common.processor.RowProcessor;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
 
 /**
+ * Dispatch rows to {@link CsvResult.Collector} and visitors.<br>
+ * Visitors which {@link CsvComparisonVisitor#batchRows() batch rows} receive rows per category in batches,
+ * other visitors receive rows one by one.<br><br>
+ *
  * <em>Repository:</em>
  * <ul>
  *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
@@ -16,43 +23,87 @@ import java.util.*;
  * @since 2019
  */
 class CsvProcessor implements RowProcessor {
+    private static final int BATCH_SIZE = 1024;
     CsvComparisonOptions options;
-    List<CsvComparisonVisitor> visitors;
+    CsvComparisonVisitor[] rowVisitors;
+    CsvComparisonVisitor[] batchVisitors;
     CsvResult.Collector collector;
-    Map<String, String[]> expMap;
+    CsvIndex expIndex;
     CsvSource source;
+    Object lock;
+    boolean timed;
+    long probeNanos;
+    long probeRows;
+    CsvTracker tracker;
+    LongSupplier bytes;
+    private long rows;
+    final CellDiffs cellDiffs = new CellDiffs();
+    private final boolean failFast;
+    private boolean stopped;
+    private final Batch[] batches = new Batch[CsvComparisonResultOptions.Category.values().length];
 
     //-------------------------------------------------------------------------------//
 
     CsvProcessor(CsvComparisonOptions options, List<CsvComparisonVisitor> visitors,
-                 CsvResult.Collector collector, Map<String, String[]> expMap, CsvSource source) {
+                 CsvResult.Collector collector, CsvSource source) {
+        this(options, visitors, collector, new CsvHeapIndex(source.getKey(), options.duplicateKeys()), source);
+    }
+
+    CsvProcessor(CsvComparisonOptions options, List<CsvComparisonVisitor> visitors,
+                 CsvResult.Collector collector, CsvIndex expIndex, CsvSource source) {
         this.options = options;
-        this.visitors = visitors;
         this.collector = collector;
-        this.expMap = expMap;
+        this.expIndex = expIndex;
         this.source = source;
+        this.failFast = options.failFast();
+
+        List<CsvComparisonVisitor> rowVisitors = new ArrayList<>();
+        List<CsvComparisonVisitor> batchVisitors = new ArrayList<>();
+
+        for (CsvComparisonVisitor visitor : visitors) {
+            (visitor.batchRows() ? batchVisitors : rowVisitors).add(visitor);
+        }
+        this.rowVisitors = rowVisitors.toArray(new CsvComparisonVisitor[0]);
+        this.batchVisitors = batchVisitors.toArray(new CsvComparisonVisitor[0]);
+
+        if (this.batchVisitors.length > 0) {
+            for (int index = 0; index < batches.length; index++) {
+                batches[index] = new Batch();
+            }
+        }
     }
 
     //-------------------------------------------------------------------------------//
 
     @Override
     public void rowProcessed(String[] actRow, ParsingContext context) {
-        String[] expRow = expMap.get(actRow[source.getColumnId()]);
-
-        if (expRow == null) {
-            collector.rowInserted(options, source.getHeaders(), actRow);
-            visitors.forEach(v -> v.rowInserted(options, source.getHeaders(), actRow));
-        } else {
-            if (Arrays.equals(actRow, expRow)) {
-                collector.rowKept(options, source.getHeaders(), actRow);
-                visitors.forEach(v -> v.rowKept(options, source.getHeaders(), actRow));
-            } else {
-                List<HashMap<String, String>> diffs = getDiffs(source.getHeaders(), expRow, actRow);
-                collector.rowModified(options, source.getHeaders(), actRow, diffs);
-                visitors.forEach(v -> v.rowModified(options, source.getHeaders(), actRow, diffs));
+        if (tracker != null && ++rows % CsvTracker.INTERVAL == 0) {
+            if (tracker.isCancelled()) {
+                // Parsing ends gracefully, cancellation is thrown after parsing
+                context.stop();
+                return;
             }
-            expMap.remove(actRow[source.getColumnId()]);
+            tracker.progressed(CsvComparisonProgress.Phase.ACT, rows, bytes.getAsLong());
+        }
+        if (timed) {
+            long starting = System.nanoTime();
+            rowProbed(actRow);
+            probeNanos += System.nanoTime() - starting;
+            probeRows++;
+        } else {
+            rowProbed(actRow);
         }
+        if (stopped) {
+            // The first difference is found
+            context.stop();
+        }
+    }
+
+    /**
+     * Number of rows are processed so far, it's only counted when comparison is tracked.
+     */
+    long getRows() {
+        return rows;
     }
 
     @Override
@@ -63,22 +114,199 @@ class CsvProcessor implements RowProcessor {
 
     //-------------------------------------------------------------------------------//
 
-    private List<HashMap<String, String>> getDiffs(String[] headers, String[] expRow, String[] actRow) {
-        List<HashMap<String, String>> diffs = new ArrayList<>();
+    void rowProbed(String[] actRow) {
+        int slot = expIndex.find(actRow);
+
+        if (slot == -1) {
+            if (options.duplicateKeys() && expIndex.isMatched(actRow)) {
+                // Expected rows of the same key were all paired
+                rowDuplicated(actRow);
+            } else {
+                rowInserted(actRow);
+            }
+        } else {
+            expIndex.match(slot);
+
+            if (expIndex.rowEquals(slot, actRow)) {
+                rowKept(actRow);
+            } else {
+                rowMatched(expIndex.getRow(slot), actRow);
+            }
+        }
+    }
+
+    /**
+     * Whether the first difference is found with {@link CsvComparisonOptions#failFast()}, rows after it aren't compared.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
 
-        for (int index = 0; index < headers.length; index++) {
-            String header = headers[index];
-            String expCell = expRow[index] == null ? "NULL" : expRow[index];
-            String actCell = actRow[index] == null ? "NULL" : actRow[index];
+    /**
+     * Report rows are left in expIndex as deleted, and deliver rows are left in batches.
+     */
+    void flush() {
+        if (failFast && (stopped || collector.keptCount == expIndex.size())) {
+            // Actual rows are paired with distinct expected rows, so no row is left when all were paired
+            return;
+        }
+        // Rows are left in expIndex weren't found in actual CSV
+        if (options.duplicateKeys()) {
+            expIndex.forEachUnmatched(expRow -> {
+                if (expIndex.isMatched(expRow)) {
+                    rowDuplicated(expRow);
+                } else {
+                    rowDeleted(expRow);
+                }
+            });
+        } else {
+            expIndex.forEachUnmatched(this::rowDeleted);
+        }
 
-            if (!expCell.equals(actCell)) {
-                diffs.add(new HashMap<>() {{
-                    put("column", header);
-                    put("expCell", expCell);
-                    put("actCell", actCell);
-                }});
+        if (batchVisitors.length > 0) {
+            if (lock == null) {
+                flushBatches();
+            } else {
+                synchronized (lock) {
+                    flushBatches();
+                }
             }
         }
-        return diffs;
+    }
+
+    void rowMatched(String[] expRow, String[] actRow) {
+        if (Arrays.equals(actRow, expRow)) {
+            rowKept(actRow);
+        } else {
+            // A missing trailing cell and a null cell are different rows, even though no cell differs
+            cellDiffs.diff(source.getHeaders(), expRow, actRow);
+            collector.rowModified(options, source.getHeaders(), actRow, cellDiffs);
+            visit(CsvComparisonResultOptions.Category.MODIFIED, actRow);
+        }
+    }
+
+    void rowKept(String[] actRow) {
+        collector.rowKept(options, source.getHeaders(), actRow);
+        visit(CsvComparisonResultOptions.Category.KEPT, actRow);
+    }
+
+    void rowInserted(String[] actRow) {
+        collector.rowInserted(options, source.getHeaders(), actRow);
+        visit(CsvComparisonResultOptions.Category.INSERTED, actRow);
+    }
+
+    void rowDeleted(String[] expRow) {
+        collector.rowDeleted(options, source.getHeaders(), expRow);
+        visit(CsvComparisonResultOptions.Category.DELETED, expRow);
+    }
+
+    void rowDuplicated(String[] row) {
+        collector.rowDuplicated(options, source.getHeaders(), row);
+        visit(CsvComparisonResultOptions.Category.DUPLICATED, row);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private void visit(CsvComparisonResultOptions.Category category, String[] row) {
+        if (failFast) {
+            stopped |= category != CsvComparisonResultOptions.Category.KEPT;
+            return;
+        }
+        if (rowVisitors.length == 0 && batchVisitors.length == 0) {
+            return;
+        }
+        if (lock == null) {
+            dispatch(category, row);
+        } else {
+            synchronized (lock) {
+                dispatch(category, row);
+            }
+        }
+    }
+
+    private void dispatch(CsvComparisonResultOptions.Category category, String[] row) {
+        String[] headers = source.getHeaders();
+
+        for (CsvComparisonVisitor visitor : rowVisitors) {
+            switch (category) {
+                case KEPT:
+                    visitor.rowKept(options, headers, row);
+                    break;
+                case DELETED:
+                    visitor.rowDeleted(options, headers, row);
+                    break;
+                case INSERTED:
+                    visitor.rowInserted(options, headers, row);
+                    break;
+                case DUPLICATED:
+                    visitor.rowDuplicated(options, headers, row);
+                    break;
+                default:
+                    visitor.rowModified(options, headers, row, cellDiffs);
+            }
+        }
+        if (batchVisitors.length > 0) {
+            Batch batch = batches[category.ordinal()];
+            // CellDiffs is reused for the next modified row
+            batch.add(row, category == CsvComparisonResultOptions.Category.MODIFIED ? cellDiffs.copy() : null);
+
+            if (batch.count == BATCH_SIZE) {
+                deliver(category, batch);
+            }
+        }
+    }
+
+    private void flushBatches() {
+        for (CsvComparisonResultOptions.Category category : CsvComparisonResultOptions.Category.values()) {
+            Batch batch = batches[category.ordinal()];
+
+            if (batch.count > 0) {
+                deliver(category, batch);
+            }
+        }
+    }
+
+    private void deliver(CsvComparisonResultOptions.Category category, Batch batch) {
+        String[] headers = source.getHeaders();
+
+        for (CsvComparisonVisitor visitor : batchVisitors) {
+            switch (category) {
+                case KEPT:
+                    visitor.rowsKept(options, headers, batch.rows, batch.count);
+                    break;
+                case DELETED:
+                    visitor.rowsDeleted(options, headers, batch.rows, batch.count);
+                    break;
+                case INSERTED:
+                    visitor.rowsInserted(options, headers, batch.rows, batch.count);
+                    break;
+                case DUPLICATED:
+                    visitor.rowsDuplicated(options, headers, batch.rows, batch.count);
+                    break;
+                default:
+                    visitor.rowsModified(options, headers, batch.rows, batch.diffs, batch.count);
+            }
+        }
+        batch.clear();
+    }
+
+    //===============================================================================//
+
+    private static final class Batch {
+        private final String[][] rows = new String[BATCH_SIZE][];
+        private final CellDiffs[] diffs = new CellDiffs[BATCH_SIZE];
+        private int count;
+
+        private void add(String[] row, CellDiffs rowDiffs) {
+            rows[count] = row;
+            diffs[count] = rowDiffs;
+            count++;
+        }
+
+        private void clear() {
+            Arrays.fill(rows, 0, count, null);
+            Arrays.fill(diffs, 0, count, null);
+            count = 0;
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.github.ngoanh2n.csv;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -16,9 +17,15 @@ import java.util.List;
  */
 class CsvResult implements CsvComparisonResult {
     private final Collector collector;
+    private final CsvMetrics metrics;
 
     CsvResult(Collector collector) {
+        this(collector, null);
+    }
+
+    CsvResult(Collector collector, @Nullable CsvMetrics metrics) {
         this.collector = collector;
+        this.metrics = metrics;
     }
 
     //-------------------------------------------------------------------------------//
@@ -38,9 +45,14 @@ class CsvResult implements CsvComparisonResult {
         return collector.isModified;
     }
 
+    @Override
+    public boolean hasDuplication() {
+        return collector.isDuplicated;
+    }
+
     @Override
     public boolean hasDiff() {
-        return hasDeletion() || hasInsertion() || hasModification();
+        return hasDeletion() || hasInsertion() || hasModification() || hasDuplication();
     }
 
     @Override
@@ -63,12 +75,51 @@ class CsvResult implements CsvComparisonResult {
         return collector.rowsModified;
     }
 
+    @Override
+    public List<String[]> getDuplicatedRows() {
+        return collector.rowsDuplicated;
+    }
+
+    @Override
+    public long getKeptCount() {
+        return collector.counting ? collector.keptCount : -1;
+    }
+
+    @Override
+    public long getDeletedCount() {
+        return collector.counting ? collector.deletedCount : -1;
+    }
+
+    @Override
+    public long getInsertedCount() {
+        return collector.counting ? collector.insertedCount : -1;
+    }
+
+    @Override
+    public long getModifiedCount() {
+        return collector.counting ? collector.modifiedCount : -1;
+    }
+
+    @Override
+    public long getDuplicatedCount() {
+        return collector.counting ? collector.duplicatedCount : -1;
+    }
+
+    /**
+     * The metrics of comparison, or {@code null} when comparison isn't measured.
+     */
+    @Nullable
+    CsvMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public String toString() {
-        return new HashMap<String, Integer>() {{
-            put("deletion", getDeletedRows().size());
-            put("insertion", getInsertedRows().size());
-            put("modification", getModifiedRows().size());
+        return new HashMap<String, Long>() {{
+            put("deletion", getDeletedCount());
+            put("insertion", getInsertedCount());
+            put("modification", getModifiedCount());
+            put("duplication", getDuplicatedCount());
         }}.toString();
     }
 
@@ -79,33 +130,118 @@ class CsvResult implements CsvComparisonResult {
         final List<String[]> rowsDeleted = new ArrayList<>();
         final List<String[]> rowsInserted = new ArrayList<>();
         final List<String[]> rowsModified = new ArrayList<>();
+        final List<String[]> rowsDuplicated = new ArrayList<>();
+        final boolean counting;
+        final int limit;
+        long keptCount = 0;
+        long deletedCount = 0;
+        long insertedCount = 0;
+        long modifiedCount = 0;
+        long duplicatedCount = 0;
         boolean isDeleted = false;
         boolean isInserted = false;
         boolean isModified = false;
+        boolean isDuplicated = false;
+
+        Collector(CsvComparisonResultOptions options) {
+            this(options.retention(), options.sampleSize());
+        }
+
+        Collector(CsvComparisonResultOptions.Retention retention, int sampleSize) {
+            switch (retention) {
+                case NONE:
+                    counting = false;
+                    limit = 0;
+                    break;
+                case COUNTS:
+                    counting = true;
+                    limit = 0;
+                    break;
+                case SAMPLE:
+                    counting = true;
+                    limit = sampleSize;
+                    break;
+                default:
+                    counting = true;
+                    limit = Integer.MAX_VALUE;
+            }
+        }
 
         //-------------------------------------------------------------------------------//
 
+        static Collector of(CsvComparisonOptions options) {
+            if (options.failFast()) {
+                // Counts and rows after the first difference are unknown
+                return new Collector(CsvComparisonResultOptions.Retention.NONE, 0);
+            }
+            return new Collector(options.resultOptions());
+        }
+
         @Override
         public void rowKept(CsvComparisonOptions options, String[] headers, String[] row) {
-            rowsKept.add(row);
+            keptCount++;
+            retain(rowsKept, row);
         }
 
         @Override
         public void rowDeleted(CsvComparisonOptions options, String[] headers, String[] row) {
             isDeleted = true;
-            rowsDeleted.add(row);
+            deletedCount++;
+            retain(rowsDeleted, row);
         }
 
         @Override
         public void rowInserted(CsvComparisonOptions options, String[] headers, String[] row) {
             isInserted = true;
-            rowsInserted.add(row);
+            insertedCount++;
+            retain(rowsInserted, row);
         }
 
         @Override
-        public void rowModified(CsvComparisonOptions options, String[] headers, String[] row, List<HashMap<String, String>> diffs) {
+        public void rowModified(CsvComparisonOptions options, String[] headers, String[] row, CellDiffs diffs) {
             isModified = true;
-            rowsModified.add(row);
+            modifiedCount++;
+            retain(rowsModified, row);
+        }
+
+        @Override
+        public void rowDuplicated(CsvComparisonOptions options, String[] headers, String[] row) {
+            isDuplicated = true;
+            duplicatedCount++;
+            retain(rowsDuplicated, row);
+        }
+
+        //-------------------------------------------------------------------------------//
+
+        boolean isRowRetained() {
+            return limit > 0;
+        }
+
+        void rowsKept(long count) {
+            keptCount += count;
+        }
+
+        void merge(Collector other) {
+            keptCount += other.keptCount;
+            deletedCount += other.deletedCount;
+            insertedCount += other.insertedCount;
+            modifiedCount += other.modifiedCount;
+            duplicatedCount += other.duplicatedCount;
+            isDeleted |= other.isDeleted;
+            isInserted |= other.isInserted;
+            isModified |= other.isModified;
+            isDuplicated |= other.isDuplicated;
+            other.rowsKept.forEach(row -> retain(rowsKept, row));
+            other.rowsDeleted.forEach(row -> retain(rowsDeleted, row));
+            other.rowsInserted.forEach(row -> retain(rowsInserted, row));
+            other.rowsModified.forEach(row -> retain(rowsModified, row));
+            other.rowsDuplicated.forEach(row -> retain(rowsDuplicated, row));
+        }
+
+        private void retain(List<String[]> rows, String[] row) {
+            if (rows.size() < limit) {
+                rows.add(row);
+            }
         }
     }
 }
@@ -0,0 +1,145 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Commons;
+import com.github.ngoanh2n.RuntimeError;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.File;
+
+/**
+ * An expected CSV file compiled into a reusable snapshot file.<br>
+ * The snapshot holds parsed headers, resolved key columns and a keyed index of rows in a compact binary format,
+ * so comparing many actual CSV files against the same expected CSV file parses it only once.<br>
+ * A snapshot is validated against size, modified time and content hash of the expected CSV file before use.
+ * <pre>{@code
+ * CsvComparisonOptions options = CsvComparisonOptions.builder().selectColumnId("email").build();
+ * CsvSnapshot snapshot = CsvSnapshot.compile(expectedCsvFile, snapshotFile, options);
+ * CsvComparisonResult result = CsvComparator.compare(snapshot, actualCsvFile, options);
+ * }</pre>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+@ParametersAreNonnullByDefault
+public final class CsvSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(CsvSnapshot.class);
+    private final File file;
+    private final CsvMappedIndex index;
+
+    private CsvSnapshot(File file, CsvMappedIndex index) {
+        this.file = file;
+        this.index = index;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Compile expected CSV file into snapshot file.<br>
+     * The existing snapshot file is reused when it's still valid for expected CSV file and options.
+     *
+     * @param exp     The expected CSV file.
+     * @param file    The snapshot file.
+     * @param options The {@link CsvComparisonOptions} to parse expected CSV file.
+     * @return A {@link CsvSnapshot}.
+     */
+    public static CsvSnapshot compile(File exp, File file, CsvComparisonOptions options) {
+        Preconditions.checkNotNull(exp, "exp CSV cannot be null");
+        Preconditions.checkNotNull(file, "snapshot file cannot be null");
+        Preconditions.checkNotNull(options, "options cannot be null");
+        CsvMappedIndex index = CsvMappedIndex.load(file.toPath());
+
+        if (index != null && index.getSource().equals(exp.getAbsoluteFile()) && index.isValid(options)) {
+            log.debug("Reuse CSV snapshot: {}", Commons.getRelative(file));
+            return new CsvSnapshot(file, index);
+        }
+        log.debug("Compile CSV snapshot: {}", Commons.getRelative(file));
+
+        try (CsvSource source = CsvSource.stream(options, exp)) {
+            Commons.createDir(file.toPath().toAbsolutePath().getParent());
+            return new CsvSnapshot(file, CsvMappedIndex.compile(file.toPath(), options, exp, source));
+        }
+    }
+
+    /**
+     * Load snapshot file which was compiled before.
+     *
+     * @param file The snapshot file.
+     * @return A {@link CsvSnapshot}.
+     */
+    public static CsvSnapshot load(File file) {
+        Preconditions.checkNotNull(file, "snapshot file cannot be null");
+        CsvMappedIndex index = CsvMappedIndex.load(file.toPath());
+
+        if (index == null) {
+            String msg = String.format("Not a CSV snapshot: %s", Commons.getRelative(file));
+            log.error(msg);
+            throw new RuntimeError(msg);
+        }
+        return new CsvSnapshot(file, index);
+    }
+
+    /**
+     * The snapshot file.
+     *
+     * @return The snapshot {@link File}.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * The expected CSV file which the snapshot is compiled from.
+     *
+     * @return The expected CSV {@link File}.
+     */
+    public File getSource() {
+        return index.getSource();
+    }
+
+    /**
+     * Headers of expected CSV file.
+     *
+     * @return The headers, or an empty array when CSV file hasn't headers.
+     */
+    public String[] getHeaders() {
+        return index.getHeaders();
+    }
+
+    /**
+     * Number of rows in the snapshot, rows having the same key are counted once.
+     *
+     * @return The row count.
+     */
+    public int getRowCount() {
+        return index.size();
+    }
+
+    /**
+     * Whether expected CSV file is unchanged since the snapshot was compiled, and options parse it the same way.
+     *
+     * @param options The {@link CsvComparisonOptions} to parse CSV files.
+     * @return Indicate the snapshot can be compared.
+     */
+    public boolean isValid(CsvComparisonOptions options) {
+        return index.isValid(options);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    CsvKey getKey() {
+        return index.getKey();
+    }
+
+    CsvMappedIndex getIndex() {
+        return index.view();
+    }
+}
@@ -0,0 +1,275 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.RuntimeError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sort rows by key within a memory budget.<br>
+ * Rows are buffered until the budget is reached, then sorted and spilled to a temporary run file.
+ * Run files are merged back into a single sorted sequence.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+class CsvSorter implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(CsvSorter.class);
+    private static final int MAX_MERGED_RUNS = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final long memoryBudget;
+    private final Comparator<String[]> comparator;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Run> openedRuns = new ArrayList<>();
+    private Path dir;
+
+    CsvSorter(CsvKey key, long memoryBudget, Comparator<String> keyOrder) {
+        this.memoryBudget = memoryBudget;
+        this.comparator = key.getOrder(keyOrder);
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    Iterator<String[]> sort(Iterator<String[]> rows) {
+        List<String[]> buffer = new ArrayList<>();
+        List<Path> sortedRuns = new ArrayList<>();
+        long bufferSize = 0;
+
+        while (rows.hasNext()) {
+            String[] row = rows.next();
+            buffer.add(row);
+            bufferSize += sizeOf(row);
+
+            if (bufferSize >= memoryBudget) {
+                buffer.sort(comparator);
+                sortedRuns.add(spill(buffer.iterator()));
+                buffer.clear();
+                bufferSize = 0;
+            }
+        }
+        buffer.sort(comparator);
+
+        if (sortedRuns.isEmpty()) {
+            // All rows fit in the memory budget
+            return buffer.iterator();
+        }
+        if (!buffer.isEmpty()) {
+            sortedRuns.add(spill(buffer.iterator()));
+            buffer.clear();
+        }
+        while (sortedRuns.size() > MAX_MERGED_RUNS) {
+            List<Path> mergedRuns = new ArrayList<>();
+
+            for (int from = 0; from < sortedRuns.size(); from += MAX_MERGED_RUNS) {
+                int to = Math.min(from + MAX_MERGED_RUNS, sortedRuns.size());
+                int opened = openedRuns.size();
+                mergedRuns.add(spill(merge(sortedRuns.subList(from, to))));
+                // Merged runs are read to the end, their files aren't needed by the next pass
+                release(openedRuns.subList(opened, openedRuns.size()), sortedRuns.subList(from, to));
+            }
+            sortedRuns = mergedRuns;
+        }
+        log.debug("Sorted {} run files", sortedRuns.size());
+        return merge(sortedRuns);
+    }
+
+    @Override
+    public void close() {
+        for (Run run : openedRuns) {
+            run.close();
+        }
+        for (Path run : runs) {
+            delete(run);
+        }
+        if (dir != null) {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Number of run files are on disk.
+     */
+    int getRunFiles() {
+        return runs.size();
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    private static long sizeOf(String[] row) {
+        // Approximate heap usage: array header, references and String objects
+        long size = 16 + 8L * row.length;
+
+        for (String cell : row) {
+            if (cell != null) {
+                size += 40 + 2L * cell.length();
+            }
+        }
+        return size;
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.warn("Cannot delete temporary file {}", path);
+        }
+    }
+
+    private void release(List<Run> mergedRuns, List<Path> mergedFiles) {
+        for (Run run : mergedRuns) {
+            run.close();
+        }
+        for (Path run : mergedFiles) {
+            runs.remove(run);
+            delete(run);
+        }
+        mergedRuns.clear();
+    }
+
+    private Path spill(Iterator<String[]> rows) {
+        try {
+            if (dir == null) {
+                dir = Files.createTempDirectory("csv-comparator");
+            }
+            Path run = Files.createTempFile(dir, "run", ".bin");
+            runs.add(run);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+                while (rows.hasNext()) {
+                    writeRow(out, rows.next());
+                }
+            }
+            return run;
+        } catch (IOException ex) {
+            String msg = "Error occurred while spilling sorted rows to disk";
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
+    }
+
+    private Iterator<String[]> merge(List<Path> sortedRuns) {
+        PriorityQueue<Run> queue = new PriorityQueue<>(sortedRuns.size(), (left, right) -> {
+            int result = comparator.compare(left.row, right.row);
+            // Keep original order of rows which have the same key
+            return result != 0 ? result : Integer.compare(left.index, right.index);
+        });
+
+        for (int index = 0; index < sortedRuns.size(); index++) {
+            Run run = new Run(sortedRuns.get(index), index);
+            openedRuns.add(run);
+
+            if (run.advance()) {
+                queue.add(run);
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public String[] next() {
+                Run run = queue.poll();
+                if (run == null) {
+                    throw new NoSuchElementException();
+                }
+                String[] row = run.row;
+
+                if (run.advance()) {
+                    queue.add(run);
+                }
+                return row;
+            }
+        };
+    }
+
+    private static void writeRow(DataOutputStream out, String[] row) throws IOException {
+        out.writeInt(row.length);
+
+        for (String cell : row) {
+            if (cell == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = cell.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String[] readRow(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException ignored) {
+            return null;
+        }
+        String[] row = new String[length];
+
+        for (int index = 0; index < length; index++) {
+            int size = in.readInt();
+
+            if (size != -1) {
+                byte[] bytes = new byte[size];
+                in.readFully(bytes);
+                row[index] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        return row;
+    }
+
+    //===============================================================================//
+
+    private static class Run implements Closeable {
+        private final int index;
+        private final DataInputStream in;
+        private String[] row;
+
+        private Run(Path path, int index) {
+            this.index = index;
+            try {
+                this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            } catch (IOException ex) {
+                String msg = "Error occurred while reading sorted rows from disk";
+                log.error(msg);
+                throw new RuntimeError(msg, ex);
+            }
+        }
+
+        private boolean advance() {
+            try {
+                row = readRow(in);
+            } catch (IOException ex) {
+                String msg = "Error occurred while reading sorted rows from disk";
+                log.error(msg);
+                throw new RuntimeError(msg, ex);
+            }
+            if (row == null) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException ex) {
+                log.warn("Cannot close sorted run");
+            }
+        }
+    }
+}
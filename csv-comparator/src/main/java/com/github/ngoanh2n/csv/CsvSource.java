@@ -2,25 +2,32 @@ package com.github.ngoanh2n.csv;
 
 import com.github.ngoanh2n.Commons;
 import com.github.ngoanh2n.RuntimeError;
-import com.univocity.parsers.common.fields.FieldIndexSelector;
-import com.univocity.parsers.common.fields.FieldNameSelector;
-import com.univocity.parsers.common.fields.FieldSelector;
-import com.univocity.parsers.csv.CsvParser;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.univocity.parsers.csv.CsvParserSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
 import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.toList;
 
 /**
- * Parse CSV file to rows and headers, columnId.<br><br>
+ * Parse CSV to rows and headers, key of columnIds.<br>
+ * Rows are either loaded at once or streamed one by one.<br>
+ * Detected charsets are cached per file until the file size or last modified time changes.<br><br>
  *
  * <em>Repository:</em>
  * <ul>
@@ -31,30 +38,50 @@ import static java.util.stream.Collectors.toList;
  * @author ngoanh2n
  * @since 2019
  */
-class CsvSource {
-    private final int columnId;
+class CsvSource implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(CsvSource.class);
+    private static final int CHARSET_SAMPLE_SIZE = 64 * 1024;
+    private static final Cache<Path, DetectedCharset> charsets = CacheBuilder.newBuilder().maximumSize(1024).build();
+    private final CsvKey key;
     private final String[] headers;
     private final List<String[]> rows;
+    private final CsvIterator iterator;
 
-    private CsvSource(CsvComparisonOptions options, File file, boolean includeHeaders) {
+    private CsvSource(CsvComparisonOptions options, CsvComparisonSource source, boolean includeHeaders, boolean streaming) {
         String[] tmpHeaders = new String[]{};
-        CsvParserSettings settings = options.parserSettings();
-        CsvParser parser = new CsvParser(settings);
+        // Own copy of settings, options are shared by concurrent comparisons
+        CsvParserSettings settings = options.parserSettings().clone();
+        boolean headerExtraction = settings.isHeaderExtractionEnabled();
+        settings.setHeaderExtractionEnabled(false);
+        iterator = new CsvIterator(settings, source, getCharset(options, source), CsvMetrics.isEnabled(options));
 
-        if (!settings.isHeaderExtractionEnabled() || includeHeaders) {
-            settings.setHeaderExtractionEnabled(false);
-            rows = parser.parseAll(file, getCharset(options, file));
-            settings.setHeaderExtractionEnabled(true);
-        } else {
-            settings.setHeaderExtractionEnabled(false);
-            rows = parser.parseAll(file, getCharset(options, file));
-            if (!rows.isEmpty()) {
-                tmpHeaders = rows.remove(0);
+        if (headerExtraction && !includeHeaders) {
+            if (iterator.hasNext()) {
+                tmpHeaders = iterator.next();
             }
-            settings.setHeaderExtractionEnabled(true);
         }
         headers = tmpHeaders;
-        columnId = getColumnId(options);
+
+        try {
+            key = getKey(options, headerExtraction);
+        } catch (RuntimeException ex) {
+            iterator.close();
+            throw ex;
+        }
+
+        if (streaming) {
+            rows = Collections.emptyList();
+        } else {
+            rows = new ArrayList<>();
+            iterator.forEachRemaining(rows::add);
+        }
+    }
+
+    private CsvSource(String[] headers, CsvKey key) {
+        this.headers = headers;
+        this.key = key;
+        this.rows = Collections.emptyList();
+        this.iterator = null;
     }
 
     //-------------------------------------------------------------------------------//
@@ -64,24 +91,73 @@ class CsvSource {
     }
 
     static CsvSource parse(CsvComparisonOptions options, File file, boolean includeHeaders) {
-        return new CsvSource(options, file, includeHeaders);
+        return parse(options, CsvComparisonSource.of(file), includeHeaders);
+    }
+
+    static CsvSource parse(CsvComparisonOptions options, CsvComparisonSource source, boolean includeHeaders) {
+        return new CsvSource(options, source, includeHeaders, false);
+    }
+
+    static CsvSource stream(CsvComparisonOptions options, File file) {
+        return stream(options, CsvComparisonSource.of(file));
+    }
+
+    static CsvSource stream(CsvComparisonOptions options, CsvComparisonSource source) {
+        return new CsvSource(options, source, false, true);
+    }
+
+    static CsvSource of(String[] headers, CsvKey key) {
+        return new CsvSource(headers, key);
+    }
+
+    static Charset getCharset(CsvComparisonOptions options, CsvComparisonSource source) {
+        if (source.getFile() != null) {
+            return getCharset(options, source.getFile());
+        }
+        if (options.charset() != null) {
+            return options.charset();
+        }
+        if (source.isReader()) {
+            // Characters are decoded by reader
+            return Charset.defaultCharset();
+        }
+        try {
+            byte[] sample = new byte[CHARSET_SAMPLE_SIZE];
+            int length = source.sample(sample);
+            Charset charset = detectCharset(sample, length);
+            return charset == null ? Charset.defaultCharset() : charset;
+        } catch (IOException ex) {
+            String msg = String.format("Error occurred while reading CSV: %s", source.getName());
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
+        }
     }
 
     static Charset getCharset(CsvComparisonOptions options, File file) {
+        if (options.charset() != null) {
+            return options.charset();
+        }
         try {
-            return options.charset() != null
-                    ? options.charset()
-                    : Charset.forName(Commons.detectCharset(file));
-        } catch (IOException ignored) {
-            // Can't happen
-            return StandardCharsets.UTF_8;
+            Path path = file.toPath().toAbsolutePath().normalize();
+            BasicFileAttributes attributes = Files.readAttributes(CsvInput.getStorage(file).toPath(), BasicFileAttributes.class);
+            DetectedCharset detected = charsets.getIfPresent(path);
+
+            if (detected == null || !detected.matches(attributes)) {
+                detected = new DetectedCharset(attributes, detectCharset(file));
+                charsets.put(path, detected);
+            }
+            return detected.charset;
+        } catch (IOException ex) {
+            String msg = String.format("Error occurred while detecting charset of CSV: %s", Commons.getRelative(file));
+            log.error(msg);
+            throw new RuntimeError(msg, ex);
         }
     }
 
     //-------------------------------------------------------------------------------//
 
-    int getColumnId() {
-        return columnId;
+    CsvKey getKey() {
+        return key;
     }
 
     String[] getHeaders() {
@@ -92,57 +168,124 @@ class CsvSource {
         return rows;
     }
 
+    CsvIterator getIterator() {
+        return iterator;
+    }
+
+    /**
+     * Number of rows are streamed so far, the header row excluded.
+     */
+    long getRowCount() {
+        return iterator == null ? 0 : iterator.getRows() - (headers.length > 0 ? 1 : 0);
+    }
+
+    @Override
+    public void close() {
+        if (iterator != null) {
+            iterator.close();
+        }
+    }
+
     //-------------------------------------------------------------------------------//
 
-    private int getColumnId(CsvComparisonOptions options) {
-        CsvParserSettings settings = options.parserSettings();
-        FieldSelector selector = getColumnSelector(settings);
+    private static Charset detectCharset(File file) throws IOException {
+        byte[] sample = new byte[CHARSET_SAMPLE_SIZE];
+        int length;
 
-        if (selector instanceof FieldNameSelector) {
-            List<String> names = getColumnNames(settings);
-            return getColumnIdByName(options, names);
+        try (InputStream in = CsvInput.open(file)) {
+            length = in.readNBytes(sample, 0, sample.length);
         }
-        if (selector instanceof FieldIndexSelector) {
-            List<Integer> indexes = getColumnIndexes(settings);
-            return getColumnIdByIndex(options, indexes);
+        Charset charset = detectCharset(sample, length);
+        // 7-bit sample doesn't tell the charset of the rest of file
+        boolean undecided = length == sample.length && isASCII(sample, length);
+
+        if (charset != null && !undecided) {
+            return charset;
         }
-        if (selector == null) {
-            if (options.columnId() instanceof String) {
-                List<String> names = Arrays.asList(headers);
-                return getColumnIdByName(options, names);
-            } else {
-                List<Integer> indexes = new ArrayList<>();
+        if (!CsvInput.isPlain(file)) {
+            // Compressed file can't be detected without decompressing to disk
+            return charset == null ? Charset.defaultCharset() : charset;
+        }
+        // Sample isn't UTF-8 or it's 7-bit, detect charset with the whole file
+        return Charset.forName(Commons.detectCharset(file));
+    }
 
-                if (!rows.isEmpty()) {
-                    int columns = rows.get(0).length;
-                    indexes = IntStream.range(0, columns).boxed().collect(toList());
-                }
-                return getColumnIdByIndex(options, indexes);
+    private static Charset detectCharset(byte[] sample, int length) {
+        if (length >= 3 && sample[0] == (byte) 0xEF && sample[1] == (byte) 0xBB && sample[2] == (byte) 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2 && sample[0] == (byte) 0xFE && sample[1] == (byte) 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && sample[0] == (byte) 0xFF && sample[1] == (byte) 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (isUTF8(sample, length, length < CHARSET_SAMPLE_SIZE)) {
+            return StandardCharsets.UTF_8;
+        }
+        return null;
+    }
+
+    private static boolean isASCII(byte[] sample, int length) {
+        for (int index = 0; index < length; index++) {
+            if (sample[index] < 0) {
+                return false;
             }
         }
-        throw new RuntimeError("Unknown column selector");
+        return true;
     }
 
-    private List<String> getColumnNames(CsvParserSettings settings) {
-        return ((FieldNameSelector) getColumnSelector(settings)).get();
+    private static boolean isUTF8(byte[] sample, int length, boolean endOfInput) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CoderResult result = decoder.decode(ByteBuffer.wrap(sample, 0, length), CharBuffer.allocate(length), endOfInput);
+        return !result.isError();
     }
 
-    private List<Integer> getColumnIndexes(CsvParserSettings settings) {
-        return ((FieldIndexSelector) getColumnSelector(settings)).get();
+    private CsvKey getKey(CsvComparisonOptions options, boolean headerExtraction) {
+        List<?> columnIds = options.columnIds();
+
+        if (columnIds.isEmpty()) {
+            // ColumnId isn't set, it's reported as not in selected columns
+            columnIds = Collections.singletonList(null);
+        }
+        int[] columns = new int[columnIds.size()];
+
+        for (int index = 0; index < columns.length; index++) {
+            columns[index] = getColumnId(options, columnIds.get(index), headerExtraction);
+        }
+        return new CsvKey(columns);
     }
 
-    private FieldSelector getColumnSelector(CsvParserSettings settings) {
-        return Commons.readField(settings, "fieldSelector");
+    private int getColumnId(CsvComparisonOptions options, Object columnId, boolean headerExtraction) {
+        List<?> selected = options.selectedColumns();
+
+        if (selected == null) {
+            if (columnId instanceof String) {
+                List<String> names = Arrays.asList(headers);
+                return getColumnIdByName(columnId, names, headerExtraction);
+            } else {
+                List<Integer> indexes = new ArrayList<>();
+
+                if (iterator.hasNext()) {
+                    int columns = iterator.peek().length;
+                    indexes = IntStream.range(0, columns).boxed().collect(toList());
+                }
+                return getColumnIdByIndex(columnId, indexes);
+            }
+        }
+        boolean byName = selected.isEmpty() ? columnId instanceof String : selected.get(0) instanceof String;
+        return byName ? getColumnIdByName(columnId, selected, headerExtraction) : getColumnIdByIndex(columnId, selected);
     }
 
-    private int getColumnIdByName(CsvComparisonOptions options, List<String> names) {
-        CsvParserSettings settings = options.parserSettings();
-        if (settings.isHeaderExtractionEnabled()) {
-            String columnName = String.valueOf(options.columnId());
-            int columnId = names.indexOf(columnName);
+    private int getColumnIdByName(Object columnId, List<?> names, boolean headerExtraction) {
+        if (headerExtraction) {
+            String columnName = String.valueOf(columnId);
+            int column = names.indexOf(columnName);
 
-            if (columnId != -1) {
-                return columnId;
+            if (column != -1) {
+                return column;
             } else {
                 String msg = "ColumnId should be in selected columns %s";
                 throw new RuntimeError(String.format(msg, names));
@@ -153,20 +296,37 @@ class CsvSource {
         }
     }
 
-    private int getColumnIdByIndex(CsvComparisonOptions options, List<Integer> indexes) {
-        if (options.columnId() instanceof Integer) {
-            int columnIndex = Integer.parseInt(options.columnId().toString());
-            int columnId = indexes.indexOf(columnIndex);
+    private int getColumnIdByIndex(Object columnId, List<?> indexes) {
+        if (columnId instanceof Integer) {
+            int column = indexes.indexOf(columnId);
 
-            if (columnId != -1) {
-                return columnId;
+            if (column != -1) {
+                return column;
             } else {
                 String msg = "ColumnId should be in selected columns %s";
                 throw new RuntimeError(String.format(msg, indexes));
             }
         } else {
             String msg = "ColumnId=%s is not in selected columns %s";
-            throw new RuntimeError(String.format(msg, options.columnId(), indexes));
+            throw new RuntimeError(String.format(msg, columnId, indexes));
+        }
+    }
+
+    //===============================================================================//
+
+    private static class DetectedCharset {
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final Charset charset;
+
+        private DetectedCharset(BasicFileAttributes attributes, Charset charset) {
+            this.size = attributes.size();
+            this.lastModifiedTime = attributes.lastModifiedTime();
+            this.charset = charset;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModifiedTime.equals(attributes.lastModifiedTime());
         }
     }
 }
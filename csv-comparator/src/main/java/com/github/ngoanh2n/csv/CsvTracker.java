@@ -0,0 +1,90 @@
+package com.github.ngoanh2n.csv;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Report progress of a comparison to {@link CsvComparisonProgress}, and check its {@link CsvCancellation}.<br><br>
+ *
+ * <em>Repository:</em>
+ * <ul>
+ *     <li><em>GitHub: <a href="https://github.com/ngoanh2n/csv-comparator">ngoanh2n/csv-comparator</a></em></li>
+ *     <li><em>Maven: <a href="https://mvnrepository.com/artifact/com.github.ngoanh2n/csv-comparator">com.github.ngoanh2n:csv-comparator</a></em></li>
+ * </ul>
+ *
+ * @author ngoanh2n
+ * @since 2019
+ */
+final class CsvTracker {
+    /**
+     * Number of rows between 2 reports of progress and checks of cancellation.
+     */
+    static final int INTERVAL = 16 * 1024;
+    private static final Logger log = LoggerFactory.getLogger(CsvTracker.class);
+    private final CsvComparisonProgress progress;
+    private final CsvCancellation cancellation;
+    private final CsvComparisonSource exp;
+    private final CsvComparisonSource act;
+
+    private CsvTracker(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        this.progress = options.progress();
+        this.cancellation = options.cancellation();
+        this.exp = exp;
+        this.act = act;
+    }
+
+    //-------------------------------------------------------------------------------//
+
+    /**
+     * Get a tracker of comparison.
+     *
+     * @return A {@link CsvTracker}, or {@code null} when neither progress nor cancellation is set.
+     */
+    @Nullable
+    static CsvTracker of(CsvComparisonOptions options, CsvComparisonSource exp, CsvComparisonSource act) {
+        if (options.progress() == null && options.cancellation() == null) {
+            return null;
+        }
+        return new CsvTracker(options, exp, act);
+    }
+
+    /**
+     * Throw {@link CancellationException} when comparisons with the options are cancelled.
+     */
+    static void check(CsvComparisonOptions options) {
+        if (options.cancellation() != null && options.cancellation().isCancelled()) {
+            String msg = "CSV comparison was cancelled";
+            log.info(msg);
+            throw new CancellationException(msg);
+        }
+    }
+
+    boolean isCancelled() {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    void check() {
+        if (isCancelled()) {
+            String msg = String.format("CSV comparison was cancelled: %s, %s", exp, act);
+            log.info(msg);
+            throw new CancellationException(msg);
+        }
+    }
+
+    void progressed(CsvComparisonProgress.Phase phase, long rows, long bytes) {
+        if (progress != null) {
+            progress.progressed(exp, act, phase, rows, bytes);
+        }
+    }
+
+    /**
+     * Check cancellation and report progress, for rows which are pulled from a {@link CsvIterator}.
+     */
+    void rowsRead(CsvComparisonProgress.Phase phase, long rows, long bytes) {
+        check();
+        progressed(phase, rows, bytes);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author ngoanh2n
+ */
+public class BatchVisitorTest {
+    @Test
+    void deliverRowsInBatches() {
+        CsvComparisonOptions options = CsvComparisonOptions.defaults();
+        CsvResult.Collector collector = new CsvResult.Collector(options.resultOptions());
+        CsvSource source = CsvSource.of(new String[]{"id", "name"}, new CsvKey(0));
+        BatchVisitor visitor = new BatchVisitor();
+        CsvProcessor processor = new CsvProcessor(options, Collections.singletonList(visitor), collector, source);
+
+        for (int index = 0; index < 2500; index++) {
+            processor.rowKept(new String[]{String.valueOf(index), "kept"});
+        }
+        processor.rowMatched(new String[]{"x", "exp"}, new String[]{"x", "act"});
+        processor.flush();
+
+        Assertions.assertEquals(List.of(1024, 1024, 452), visitor.keptBatches);
+        Assertions.assertEquals(1, visitor.modifiedDiffs.size());
+        Assertions.assertEquals("act", visitor.modifiedDiffs.get(0).get(0).getActCell());
+        Assertions.assertEquals(2500, collector.keptCount);
+    }
+
+    //===============================================================================//
+
+    private static class BatchVisitor implements CsvComparisonVisitor {
+        private final List<Integer> keptBatches = new ArrayList<>();
+        private final List<CellDiffs> modifiedDiffs = new ArrayList<>();
+
+        @Override
+        public boolean batchRows() {
+            return true;
+        }
+
+        @Override
+        public void rowKept(CsvComparisonOptions options, String[] headers, String[] row) {
+            Assertions.fail("Rows should be delivered in batches");
+        }
+
+        @Override
+        public void rowsKept(CsvComparisonOptions options, String[] headers, String[][] rows, int count) {
+            keptBatches.add(count);
+        }
+
+        @Override
+        public void rowsModified(CsvComparisonOptions options, String[] headers, String[][] rows, CellDiffs[] diffs, int count) {
+            for (int index = 0; index < count; index++) {
+                modifiedDiffs.add(diffs[index]);
+            }
+        }
+    }
+}
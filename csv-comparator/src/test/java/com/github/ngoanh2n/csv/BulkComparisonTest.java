@@ -2,7 +2,10 @@ package com.github.ngoanh2n.csv;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -10,6 +13,9 @@ import java.nio.file.Paths;
  * @author ngoanh2n
  */
 public class BulkComparisonTest {
+    @TempDir
+    Path dir;
+
     @Test
     void compare() {
         Path exp = Paths.get("src/test/resources/com/github/ngoanh2n/csv/exp/bulk_data");
@@ -25,4 +31,84 @@ public class BulkComparisonTest {
         Assertions.assertEquals(3, result.getDiffTotal());
         Assertions.assertEquals(3, result.getDiffResults().size());
     }
+
+    @Test
+    void compareInParallel() {
+        Path exp = Paths.get("src/test/resources/com/github/ngoanh2n/csv/exp/bulk_data");
+        Path act = Paths.get("src/test/resources/com/github/ngoanh2n/csv/act/bulk_data");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId(0)
+                .parallelism(3)
+                .build();
+        CsvBulkComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertTrue(result.hasDiff());
+        Assertions.assertEquals(3, result.getDiffTotal());
+        Assertions.assertEquals(3, result.getDiffResults().size());
+    }
+
+    @Test
+    void compareUnpairedFiles() throws IOException {
+        Path exp = dir.resolve("exp");
+        Path act = dir.resolve("act");
+        CsvFiles.write(exp.resolve("dir/same.csv"), "id,value", "1,a");
+        CsvFiles.write(act.resolve("dir/same.csv"), "id,value", "1,a");
+        CsvFiles.write(exp.resolve("dir/removed.csv"), "id,value", "1,a", "2,b");
+        CsvFiles.write(act.resolve("added.csv"), "id,value", "3,c");
+
+        for (int parallelism : new int[]{1, 2}) {
+            CsvComparisonOptions options = CsvComparisonOptions
+                    .builder()
+                    .selectColumnId("id")
+                    .parallelism(parallelism)
+                    .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                    .build();
+            CsvBulkComparisonResult result = CsvComparator.compare(exp, act, options);
+
+            Assertions.assertEquals(3, result.getDiffResults().size());
+            Assertions.assertEquals(2, result.getDiffTotal());
+            Assertions.assertEquals(2, result.getDiffResults().stream().mapToLong(CsvComparisonResult::getDeletedCount).sum());
+            Assertions.assertEquals(1, result.getDiffResults().stream().mapToLong(CsvComparisonResult::getInsertedCount).sum());
+            Assertions.assertEquals(1, result.getDiffResults().stream().mapToLong(CsvComparisonResult::getKeptCount).sum());
+        }
+    }
+
+    @Test
+    void compareIncrementally() throws IOException {
+        Path exp = dir.resolve("exp");
+        Path act = dir.resolve("act");
+        Path manifest = dir.resolve("manifest.bin");
+        CsvFiles.write(exp.resolve("a.csv"), "id,value", "1,a", "2,b");
+        CsvFiles.write(act.resolve("a.csv"), "id,value", "1,a");
+        CsvFiles.write(exp.resolve("b.csv"), "id,value", "1,a");
+        CsvFiles.write(act.resolve("b.csv"), "id,value", "1,a");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("id")
+                .manifest(manifest)
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+        CsvBulkComparisonResult first = CsvComparator.compare(exp, act, options);
+        Assertions.assertTrue(Files.isRegularFile(manifest));
+        Assertions.assertEquals(1, first.getDiffTotal());
+
+        // Unchanged pairs are reused with counts only
+        CsvBulkComparisonResult second = CsvComparator.compare(exp, act, options);
+        Assertions.assertEquals(1, second.getDiffTotal());
+        for (CsvComparisonResult result : second.getDiffResults()) {
+            Assertions.assertTrue(result.getKeptRows().isEmpty());
+            Assertions.assertTrue(result.getDeletedRows().isEmpty());
+        }
+        Assertions.assertEquals(1, second.getDiffResults().stream().mapToLong(CsvComparisonResult::getDeletedCount).sum());
+
+        // Changed pair is compared again
+        CsvFiles.write(act.resolve("a.csv"), "id,value", "1,a", "2,b");
+        CsvBulkComparisonResult third = CsvComparator.compare(exp, act, options);
+        Assertions.assertFalse(third.hasDiff());
+        Assertions.assertEquals(3, third.getDiffResults().stream().mapToLong(CsvComparisonResult::getKeptCount).sum());
+        Assertions.assertEquals(2, third.getDiffResults().stream().mapToInt(result -> result.getKeptRows().size()).sum());
+    }
 }
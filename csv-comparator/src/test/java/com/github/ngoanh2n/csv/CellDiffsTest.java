@@ -0,0 +1,47 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * @author ngoanh2n
+ */
+public class CellDiffsTest {
+    @Test
+    void withHeaders() {
+        String[] headers = {"email", "firstname", "lastname"};
+        CellDiffs diffs = new CellDiffs();
+
+        Assertions.assertEquals(2, diffs.diff(headers, new String[]{"a@b.c", "A", null}, new String[]{"a@b.c", "B", "C"}));
+        Assertions.assertEquals(1, diffs.get(0).getColumn());
+        Assertions.assertEquals("firstname", diffs.get(0).getHeader());
+        Assertions.assertEquals("A", diffs.get(0).getExpCell());
+        Assertions.assertEquals("B", diffs.get(0).getActCell());
+        Assertions.assertNull(diffs.get(1).getExpCell());
+
+        List<HashMap<String, String>> maps = diffs.toMaps();
+        Assertions.assertEquals("lastname", maps.get(1).get("column"));
+        Assertions.assertEquals("NULL", maps.get(1).get("expCell"));
+        Assertions.assertEquals("C", maps.get(1).get("actCell"));
+    }
+
+    @Test
+    void withoutHeaders() {
+        CellDiffs diffs = new CellDiffs();
+        diffs.diff(new String[0], new String[]{"1", "A"}, new String[]{"1", "B"});
+        CellDiffs copy = diffs.copy();
+
+        Assertions.assertEquals(1, diffs.diff(new String[0], new String[]{"2", "X", "Y"}, new String[]{"2", "X"}));
+        Assertions.assertEquals(2, diffs.get(0).getColumn());
+        Assertions.assertNull(diffs.get(0).getHeader());
+        Assertions.assertEquals("Y", diffs.get(0).getExpCell());
+
+        Assertions.assertEquals(1, copy.size());
+        Assertions.assertEquals(1, copy.get(0).getColumn());
+        Assertions.assertEquals("B", copy.get(0).getActCell());
+        Assertions.assertEquals("1", copy.toMaps().get(0).get("column"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.RuntimeError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * @author ngoanh2n
+ */
+public class CharsetDetectionTest {
+    private final CsvComparisonOptions options = CsvComparisonOptions.defaults();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void detectFromSample() throws IOException {
+        File file = write("utf8.csv", "id,name\n1,Nguy\u1ec5n\n".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals(StandardCharsets.UTF_8, CsvSource.getCharset(options, file));
+    }
+
+    @Test
+    void detectByteOrderMark() throws IOException {
+        byte[] content = "id,name\n1,a\n".getBytes(StandardCharsets.UTF_16LE);
+        File file = write("utf16.csv", concat(new byte[]{(byte) 0xFF, (byte) 0xFE}, content));
+        Assertions.assertEquals(StandardCharsets.UTF_16LE, CsvSource.getCharset(options, file));
+    }
+
+    @Test
+    void detectWholeFileAfterASCII() throws IOException {
+        StringBuilder ascii = new StringBuilder("id,name\n");
+        for (int id = 0; ascii.length() < 70 * 1024; id++) {
+            ascii.append(id).append(",name").append(id).append('\n');
+        }
+        byte[] content = concat(ascii.toString().getBytes(StandardCharsets.US_ASCII), "-1,caf\u00e9\n".getBytes(StandardCharsets.ISO_8859_1));
+        File file = write("latin1.csv", content);
+
+        Charset charset = CsvSource.getCharset(options, file);
+        Assertions.assertTrue(new String(content, charset).contains("-1,caf\u00e9"));
+    }
+
+    @Test
+    void reuseUntilFileChanged() throws IOException {
+        File file = write("cached.csv", concat(new byte[]{(byte) 0xFE, (byte) 0xFF}, "id\n".getBytes(StandardCharsets.UTF_16BE)));
+        FileTime modified = Files.getLastModifiedTime(file.toPath());
+        Assertions.assertEquals(StandardCharsets.UTF_16BE, CsvSource.getCharset(options, file));
+
+        // Same size and modified time, the detected charset is reused
+        write("cached.csv", concat(new byte[]{(byte) 0xFF, (byte) 0xFE}, "id\n".getBytes(StandardCharsets.UTF_16LE)));
+        Files.setLastModifiedTime(file.toPath(), modified);
+        Assertions.assertEquals(StandardCharsets.UTF_16BE, CsvSource.getCharset(options, file));
+
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(modified.toMillis() + 2000));
+        Assertions.assertEquals(StandardCharsets.UTF_16LE, CsvSource.getCharset(options, file));
+    }
+
+    @Test
+    void missingFile() {
+        File file = dir.resolve("missing.csv").toFile();
+        Assertions.assertThrows(RuntimeError.class, () -> CsvSource.getCharset(options, file));
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        return Files.write(dir.resolve(name), content).toFile();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy(first, 0, bytes, 0, first.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
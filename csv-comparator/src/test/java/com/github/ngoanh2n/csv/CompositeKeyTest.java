@@ -0,0 +1,77 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author ngoanh2n
+ */
+public class CompositeKeyTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameOnEveryPath() throws IOException {
+        File exp = CsvFiles.write(dir.resolve("exp.csv"),
+                "region,id,name,age",
+                "eu,1,Anna,20",
+                "eu,2,Bob,30",
+                "us,1,Carl,40",
+                "us,2,Dave,50");
+        File act = CsvFiles.write(dir.resolve("act.csv"),
+                "region,id,name,age",
+                "eu,1,Anna,20",
+                "eu,2,Bob,31",
+                "us,2,Dave,50",
+                "us,3,Eve,60");
+
+        List<CsvComparisonOptions.Builder> builders = new ArrayList<>();
+        builders.add(CsvComparisonOptions.builder());
+        builders.add(CsvComparisonOptions.builder().presorted());
+        builders.add(CsvComparisonOptions.builder().memoryBudget(1));
+        builders.add(CsvComparisonOptions.builder().partitions(3));
+        builders.add(CsvComparisonOptions.builder().indexDir(dir.resolve("index")));
+
+        for (CsvComparisonOptions.Builder builder : builders) {
+            CsvComparisonOptions options = builder
+                    .selectColumnIds("region", "id")
+                    .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                    .build();
+            CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+            Assertions.assertEquals(2, result.getKeptCount());
+            Assertions.assertEquals(1, result.getModifiedCount());
+            Assertions.assertEquals(1, result.getDeletedCount());
+            Assertions.assertEquals(1, result.getInsertedCount());
+            Assertions.assertArrayEquals(new String[]{"us", "1", "Carl", "40"}, result.getDeletedRows().get(0));
+            Assertions.assertArrayEquals(new String[]{"us", "3", "Eve", "60"}, result.getInsertedRows().get(0));
+        }
+    }
+
+    @Test
+    void selectedColumnIndexes() throws IOException {
+        File exp = CsvFiles.write(dir.resolve("exp.csv"), "a,1,x,1", "a,2,y,2", "b,1,z,3");
+        File act = CsvFiles.write(dir.resolve("act.csv"), "b,1,z,3", "a,2,y,9", "a,1,x,1");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .withoutHeaders()
+                .selectColumns(0, 1, 3)
+                .selectColumnIds(1, 0)
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertEquals(2, result.getKeptCount());
+        Assertions.assertEquals(1, result.getModifiedCount());
+        Assertions.assertEquals(0, result.getDeletedCount());
+        Assertions.assertEquals(0, result.getInsertedCount());
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @author ngoanh2n
+ */
+public class CompressedInputTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameAsPlainComparison() throws IOException {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/modification.csv");
+        File gzExp = gzip(exp.toPath(), dir.resolve("modification.csv.gz"));
+        File zipAct = zip(act.toPath().getParent(), dir.resolve("modification.zip"), act.getName());
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .build();
+        CsvComparisonResult plainResult = CsvComparator.compare(exp, act, options);
+        CsvComparisonResult compressedResult = CsvComparator.compare(gzExp, zipAct, options);
+
+        Assertions.assertEquals(plainResult.getKeptCount(), compressedResult.getKeptCount());
+        Assertions.assertEquals(plainResult.getModifiedCount(), compressedResult.getModifiedCount());
+        Assertions.assertArrayEquals(plainResult.getModifiedRows().get(0), compressedResult.getModifiedRows().get(0));
+    }
+
+    @Test
+    void archiveEntriesAsFiles() throws IOException {
+        Path exp = Paths.get("src/test/resources/com/github/ngoanh2n/csv/exp/bulk_data");
+        Path act = Paths.get("src/test/resources/com/github/ngoanh2n/csv/act/bulk_data");
+        Path expDir = Files.createDirectories(dir.resolve("exp"));
+        Path actDir = Files.createDirectories(dir.resolve("act"));
+        zip(exp, expDir.resolve("bulk_data.zip"), "deletion.csv", "insertion.csv", "modification.csv");
+        zip(act, actDir.resolve("bulk_data.zip"), "deletion.csv", "insertion.csv", "modification.csv");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId(0)
+                .byteCheck()
+                .build();
+        CsvBulkComparisonResult result = CsvComparator.compare(expDir, actDir, options);
+
+        Assertions.assertTrue(result.hasDiff());
+        Assertions.assertEquals(3, result.getDiffTotal());
+        Assertions.assertEquals(3, result.getDiffResults().size());
+    }
+
+    private static File gzip(Path source, Path target) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+            Files.copy(source, out);
+        }
+        return target.toFile();
+    }
+
+    private static File zip(Path sourceDir, Path target, String... names) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+            out.putNextEntry(new ZipEntry("data/"));
+            out.closeEntry();
+
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry("data/" + name));
+                Files.copy(sourceDir.resolve(name), out);
+                out.closeEntry();
+            }
+        }
+        return target.toFile();
+    }
+}
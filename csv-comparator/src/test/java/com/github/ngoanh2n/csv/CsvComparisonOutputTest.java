@@ -0,0 +1,191 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import com.github.ngoanh2n.RuntimeError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * @author ngoanh2n
+ */
+public class CsvComparisonOutputTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeOutputs() throws IOException {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/modification.csv");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .resultOptions(CsvComparisonResultOptions
+                        .builder()
+                        .location(dir)
+                        .build())
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+        Path outputDir = getOutputDir(dir);
+
+        Assertions.assertEquals(3, result.getModifiedRows().size());
+        Assertions.assertEquals(4, Files.readAllLines(outputDir.resolve("modified.csv")).size());
+        Assertions.assertFalse(Files.exists(outputDir.resolve("kept.csv")));
+        Assertions.assertFalse(Files.exists(outputDir.resolve("deleted.csv")));
+    }
+
+    @Test
+    void writeCompressedOutputs() throws IOException {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .resultOptions(CsvComparisonResultOptions
+                        .builder()
+                        .location(dir)
+                        .outputs(CsvComparisonResultOptions.Category.DELETED, CsvComparisonResultOptions.Category.MODIFIED)
+                        .compression(CsvComparisonResultOptions.Compression.GZIP)
+                        .build())
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+        Path outputDir = getOutputDir(dir);
+
+        Assertions.assertTrue(result.getKeptCount() > 0);
+        Assertions.assertFalse(Files.exists(outputDir.resolve("kept.csv.gz")));
+        Assertions.assertFalse(Files.exists(outputDir.resolve("inserted.csv.gz")));
+        Assertions.assertEquals(result.getDeletedCount() + 1, readGzipLines(outputDir.resolve("deleted.csv.gz")).size());
+        Assertions.assertEquals(result.getModifiedCount() + 1, readGzipLines(outputDir.resolve("modified.csv.gz")).size());
+    }
+
+    @Test
+    void failToWriteOutputs() throws IOException {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/modification.csv");
+        Path location = Files.createFile(dir.resolve("output.csv"));
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .resultOptions(CsvComparisonResultOptions
+                        .builder()
+                        .location(location)
+                        .build())
+                .build();
+        Assertions.assertThrows(RuntimeError.class, () -> CsvComparator.compare(exp, act, options));
+    }
+
+    @Test
+    void finishWriterOnFailure() throws IOException {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+        // Rows are not in reverse order, so the presorted comparison fails after outputs are opened
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .presorted()
+                .keyOrder(Comparator.reverseOrder())
+                .resultOptions(CsvComparisonResultOptions
+                        .builder()
+                        .location(dir)
+                        .build())
+                .build();
+        Assertions.assertThrows(RuntimeError.class, () -> CsvComparator.compare(exp, act, options));
+        Assertions.assertTrue(Thread.getAllStackTraces()
+                .keySet()
+                .stream()
+                .noneMatch(thread -> thread.getName().startsWith("csv-output-")));
+    }
+
+    @Test
+    void skipKeptRowsUnlessWritten() throws IOException {
+        File csv = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        Path services = dir.resolve("services");
+        CsvFiles.write(services.resolve("META-INF/services/" + CsvComparisonVisitor.class.getName()), KeptRowsVisitor.class.getName());
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        // Visitors are discovered from context class loader, so KeptRowsVisitor sees kept rows dispatched to CsvComparisonOutput
+        try (URLClassLoader visitorLoader = new URLClassLoader(new URL[]{services.toUri().toURL()}, getClass().getClassLoader())) {
+            Thread.currentThread().setContextClassLoader(visitorLoader);
+
+            KeptRowsVisitor.rows.set(0);
+            CsvComparisonResult result = CsvComparator.compare(csv, csv, getKeptRowsOptions(
+                    CsvComparisonResultOptions.Category.DELETED,
+                    CsvComparisonResultOptions.Category.INSERTED,
+                    CsvComparisonResultOptions.Category.MODIFIED));
+            Assertions.assertTrue(result.getKeptCount() > 0);
+            Assertions.assertEquals(0, KeptRowsVisitor.rows.get());
+
+            KeptRowsVisitor.rows.set(0);
+            result = CsvComparator.compare(csv, csv, getKeptRowsOptions(CsvComparisonResultOptions.Category.KEPT));
+            Assertions.assertEquals(result.getKeptCount(), KeptRowsVisitor.rows.get());
+        } finally {
+            Thread.currentThread().setContextClassLoader(classLoader);
+        }
+    }
+
+    private CsvComparisonOptions getKeptRowsOptions(CsvComparisonResultOptions.Category... outputs) {
+        return CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .byteCheck()
+                .resultOptions(CsvComparisonResultOptions
+                        .builder()
+                        .location(dir.resolve("output"))
+                        .outputs(outputs)
+                        .retention(CsvComparisonResultOptions.Retention.COUNTS)
+                        .build())
+                .build();
+    }
+
+    private static List<String> readGzipLines(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file))))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    private static Path getOutputDir(Path location) throws IOException {
+        try (Stream<Path> dirs = Files.list(location)) {
+            List<Path> outputDirs = dirs.collect(Collectors.toList());
+            Assertions.assertEquals(1, outputDirs.size());
+            return outputDirs.get(0);
+        }
+    }
+
+    //===============================================================================//
+
+    /**
+     * Count kept rows dispatched to visitors, without needing them itself.
+     */
+    public static class KeptRowsVisitor implements CsvComparisonVisitor {
+        private static final AtomicLong rows = new AtomicLong();
+
+        @Override
+        public boolean visitsKeptRows() {
+            return false;
+        }
+
+        @Override
+        public void rowKept(CsvComparisonOptions options, String[] headers, String[] row) {
+            rows.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.ngoanh2n.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Write CSV fixtures of tests, usually into a JUnit {@link org.junit.jupiter.api.io.TempDir}.<br>
+ * Parent directories of CSV file are created if missing.
+ *
+ * @author ngoanh2n
+ */
+final class CsvFiles {
+    private CsvFiles() { /**/ }
+
+    static File write(Path file, String... lines) throws IOException {
+        return write(file, List.of(lines));
+    }
+
+    static File write(Path file, List<String> lines) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        return Files.write(file, lines).toFile();
+    }
+}
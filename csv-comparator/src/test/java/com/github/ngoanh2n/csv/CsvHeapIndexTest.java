@@ -0,0 +1,45 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author ngoanh2n
+ */
+public class CsvHeapIndexTest {
+    @Test
+    void findAndMatch() {
+        CsvHeapIndex index = new CsvHeapIndex(new CsvKey(1));
+        for (int i = 0; i < 1000; i++) {
+            index.put(new String[]{"row" + i, "key" + i, i % 2 == 0 ? null : ""});
+        }
+        index.put(new String[]{"last", "key7", "x"});
+        index.put(new String[]{null, null, null});
+
+        Assertions.assertEquals(1001, index.size());
+        Assertions.assertEquals(-1, index.find(key("key1000")));
+
+        int slot = index.find(key("key7"));
+        Assertions.assertArrayEquals(new String[]{"last", "key7", "x"}, index.getRow(slot));
+        Assertions.assertTrue(index.rowEquals(slot, new String[]{"last", "key7", "x"}));
+        Assertions.assertFalse(index.rowEquals(slot, new String[]{"last", "key7", null}));
+
+        index.match(slot);
+        Assertions.assertEquals(-1, index.find(key("key7")));
+
+        int nullSlot = index.find(key(null));
+        Assertions.assertTrue(index.rowEquals(nullSlot, new String[]{null, null, null}));
+        index.match(nullSlot);
+
+        List<String[]> unmatched = new ArrayList<>();
+        index.forEachUnmatched(unmatched::add);
+        Assertions.assertEquals(999, unmatched.size());
+    }
+
+    private static String[] key(String key) {
+        return new String[]{null, key, null};
+    }
+}
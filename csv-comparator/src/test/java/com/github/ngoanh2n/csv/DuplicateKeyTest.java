@@ -0,0 +1,123 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author ngoanh2n
+ */
+public class DuplicateKeyTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void pairedOnEveryPath() throws IOException {
+        File exp = CsvFiles.write(dir.resolve("exp.csv"),
+                "id,value",
+                "1,a",
+                "1,b",
+                "2,c",
+                "2,d",
+                "2,e",
+                "3,f");
+        File act = CsvFiles.write(dir.resolve("act.csv"),
+                "id,value",
+                "1,b",
+                "1,a",
+                "1,x",
+                "2,c",
+                "2,z",
+                "4,g",
+                "4,h");
+
+        for (CsvComparisonOptions.Builder builder : getBuilders()) {
+            CsvComparisonOptions options = builder
+                    .selectColumnId("id")
+                    .duplicateKeys()
+                    .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                    .build();
+            CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+            Assertions.assertEquals(3, result.getKeptCount());
+            Assertions.assertEquals(1, result.getModifiedCount());
+            Assertions.assertEquals(1, result.getDeletedCount());
+            Assertions.assertEquals(2, result.getInsertedCount());
+            Assertions.assertEquals(2, result.getDuplicatedCount());
+            Assertions.assertTrue(result.hasDuplication());
+            Assertions.assertArrayEquals(new String[]{"3", "f"}, result.getDeletedRows().get(0));
+            Assertions.assertArrayEquals(new String[]{"2", "z"}, result.getModifiedRows().get(0));
+        }
+    }
+
+    @Test
+    void manyRowsOfOneKey() throws IOException {
+        int count = 3000;
+        List<String> expLines = new ArrayList<>();
+        List<String> actLines = new ArrayList<>();
+        expLines.add("id,value");
+        actLines.add("id,value");
+
+        for (int i = 0; i < count; i++) {
+            expLines.add("1,v" + i);
+            actLines.add("1,v" + (count - 1 - i));
+        }
+        actLines.set(count, "1,x");
+        actLines.add("1,y");
+        expLines.add("2,a");
+        actLines.add("2,a");
+
+        File exp = CsvFiles.write(dir.resolve("exp.csv"), expLines);
+        File act = CsvFiles.write(dir.resolve("act.csv"), actLines);
+
+        for (CsvComparisonOptions.Builder builder : getBuilders()) {
+            CsvComparisonOptions options = builder
+                    .selectColumnId("id")
+                    .duplicateKeys()
+                    .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                    .build();
+            CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+            Assertions.assertEquals(count, result.getKeptCount());
+            Assertions.assertEquals(1, result.getModifiedCount());
+            Assertions.assertEquals(0, result.getDeletedCount());
+            Assertions.assertEquals(0, result.getInsertedCount());
+            Assertions.assertEquals(1, result.getDuplicatedCount());
+            Assertions.assertArrayEquals(new String[]{"1", "x"}, result.getModifiedRows().get(0));
+            Assertions.assertArrayEquals(new String[]{"1", "y"}, result.getDuplicatedRows().get(0));
+        }
+    }
+
+    @Test
+    void lastRowWinsByDefault() throws IOException {
+        File exp = CsvFiles.write(dir.resolve("exp.csv"), "id,value", "1,a", "1,b");
+        File act = CsvFiles.write(dir.resolve("act.csv"), "id,value", "1,b", "1,b");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("id")
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertEquals(1, result.getKeptCount());
+        Assertions.assertEquals(1, result.getInsertedCount());
+        Assertions.assertEquals(0, result.getDuplicatedCount());
+    }
+
+    private List<CsvComparisonOptions.Builder> getBuilders() {
+        List<CsvComparisonOptions.Builder> builders = new ArrayList<>();
+        builders.add(CsvComparisonOptions.builder());
+        builders.add(CsvComparisonOptions.builder().presorted());
+        builders.add(CsvComparisonOptions.builder().memoryBudget(1));
+        builders.add(CsvComparisonOptions.builder().partitions(2));
+        builders.add(CsvComparisonOptions.builder().indexDir(dir.resolve("index")));
+        return builders;
+    }
+}
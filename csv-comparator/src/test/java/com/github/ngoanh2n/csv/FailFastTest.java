@@ -0,0 +1,82 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @author ngoanh2n
+ */
+public class FailFastTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void stopAtFirstDifference() throws IOException {
+        File exp = CsvFiles.write(dir.resolve("exp.csv"), "id,value", "1,a", "2,b", "3,c");
+        File kept = CsvFiles.write(dir.resolve("kept.csv"), "id,value", "1,a", "2,b", "3,c");
+        File modified = CsvFiles.write(dir.resolve("modified.csv"), "id,value", "1,x", "2,b", "4,d");
+        File deleted = CsvFiles.write(dir.resolve("deleted.csv"), "id,value", "1,a", "3,c");
+
+        for (CsvComparisonOptions.Builder builder : getBuilders(dir)) {
+            CsvComparisonOptions options = builder.selectColumnId("id").failFast().build();
+
+            CsvComparisonResult result = CsvComparator.compare(exp, kept, options);
+            Assertions.assertFalse(result.hasDiff());
+
+            result = CsvComparator.compare(exp, modified, options);
+            Assertions.assertTrue(result.hasModification());
+            Assertions.assertFalse(result.hasInsertion());
+            Assertions.assertEquals(-1, result.getModifiedCount());
+
+            result = CsvComparator.compare(exp, deleted, options);
+            Assertions.assertTrue(result.hasDeletion());
+            Assertions.assertFalse(result.hasInsertion());
+        }
+        try (Stream<Path> outputs = Files.list(dir.resolve("output"))) {
+            Assertions.assertEquals(0, outputs.count());
+        }
+    }
+
+    @Test
+    void stopAtFirstDifferentFile() throws IOException {
+        Path exp = dir.resolve("exp");
+        Path act = dir.resolve("act");
+        CsvFiles.write(exp.resolve("a.csv"), "id,value", "1,a");
+        CsvFiles.write(act.resolve("a.csv"), "id,value", "1,x");
+        CsvFiles.write(exp.resolve("b.csv"), "id,value", "1,a");
+        CsvFiles.write(act.resolve("b.csv"), "id,value", "1,x");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("id")
+                .failFast()
+                .build();
+        CsvBulkComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertTrue(result.hasDiff());
+        Assertions.assertEquals(1, result.getDiffResults().size());
+    }
+
+    private static List<CsvComparisonOptions.Builder> getBuilders(Path dir) {
+        CsvComparisonResultOptions resultOptions = CsvComparisonResultOptions
+                .builder()
+                .location(dir.resolve("output"))
+                .build();
+        List<CsvComparisonOptions.Builder> builders = new ArrayList<>();
+        builders.add(CsvComparisonOptions.builder().resultOptions(resultOptions));
+        builders.add(CsvComparisonOptions.builder().resultOptions(resultOptions).presorted());
+        builders.add(CsvComparisonOptions.builder().resultOptions(resultOptions).memoryBudget(1));
+        builders.add(CsvComparisonOptions.builder().resultOptions(resultOptions).partitions(2));
+        builders.add(CsvComparisonOptions.builder().resultOptions(resultOptions).byteCheck());
+        return builders;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * @author ngoanh2n
+ */
+public class MappedIndexComparisonTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameAsHashComparison() throws IOException {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+        CsvComparisonOptions hashOptions = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .build();
+        CsvComparisonOptions mappedOptions = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .indexDir(dir)
+                .build();
+        CsvComparisonResult hashResult = CsvComparator.compare(exp, act, hashOptions);
+
+        for (int run = 0; run < 2; run++) {
+            CsvComparisonResult mappedResult = CsvComparator.compare(exp, act, mappedOptions);
+
+            Assertions.assertEquals(1, countIndexFiles(dir));
+            Assertions.assertEquals(hashResult.getKeptRows().size(), mappedResult.getKeptRows().size());
+            Assertions.assertEquals(hashResult.getDeletedRows().size(), mappedResult.getDeletedRows().size());
+            Assertions.assertEquals(hashResult.getInsertedRows().size(), mappedResult.getInsertedRows().size());
+            Assertions.assertEquals(hashResult.getModifiedRows().size(), mappedResult.getModifiedRows().size());
+        }
+    }
+
+    @Test
+    void rebuildStaleIndex() throws IOException {
+        File source = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        Path exp = dir.resolve("exp.csv");
+        Files.copy(source.toPath(), exp);
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .indexDir(dir)
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp.toFile(), source, options);
+        Assertions.assertFalse(result.hasDiff());
+
+        Files.writeString(exp, "\nuser99@gmail.com,\"User 99\",Nguyen,99\n", StandardOpenOption.APPEND);
+        result = CsvComparator.compare(exp.toFile(), source, options);
+
+        Assertions.assertTrue(result.hasDeletion());
+        Assertions.assertEquals(1, result.getDeletedRows().size());
+    }
+
+    private static long countIndexFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".idx")).count();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author ngoanh2n
+ */
+public class MetricsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void measureEveryPath() throws IOException {
+        File exp = CsvFiles.write(dir.resolve("exp.csv"), "id,value", "1,a", "2,b", "3,c");
+        File act = CsvFiles.write(dir.resolve("act.csv"), "id,value", "1,a", "2,x", "4,d");
+
+        List<CsvComparisonOptions.Builder> builders = new ArrayList<>();
+        builders.add(CsvComparisonOptions.builder());
+        builders.add(CsvComparisonOptions.builder().memoryBudget(1));
+        builders.add(CsvComparisonOptions.builder().partitions(2));
+        builders.add(CsvComparisonOptions.builder().indexDir(dir.resolve("index")));
+
+        for (CsvComparisonOptions.Builder builder : builders) {
+            CsvMetrics metrics = new CsvMetrics();
+            CsvComparisonOptions options = builder
+                    .selectColumnId("id")
+                    .metrics(metrics)
+                    .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                    .build();
+            CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+            Assertions.assertEquals(1, result.getModifiedCount());
+            Assertions.assertEquals(1, metrics.getComparisons());
+            Assertions.assertEquals(6, metrics.getRows());
+            Assertions.assertEquals(Files.size(exp.toPath()) + Files.size(act.toPath()), metrics.getBytesRead());
+            Assertions.assertTrue(metrics.getTotalTime().toNanos() > 0);
+            Assertions.assertTrue(metrics.getRowsPerSecond() > 0);
+        }
+    }
+
+    @Test
+    void sumPerBulk() throws IOException {
+        Path exp = dir.resolve("exp");
+        Path act = dir.resolve("act");
+        CsvFiles.write(exp.resolve("a.csv"), "id,value", "1,a", "2,b");
+        CsvFiles.write(act.resolve("a.csv"), "id,value", "1,a");
+        CsvFiles.write(exp.resolve("b.csv"), "id,value", "1,a");
+        CsvFiles.write(act.resolve("b.csv"), "id,value", "1,a");
+
+        List<CsvMetrics> comparisons = new ArrayList<>();
+        List<CsvMetrics> bulks = new ArrayList<>();
+        CsvComparisonMetrics recorder = new CsvComparisonMetrics() {
+            @Override
+            public synchronized void comparisonMeasured(CsvComparisonSource exp, CsvComparisonSource act, CsvMetrics metrics) {
+                comparisons.add(metrics);
+            }
+
+            @Override
+            public void bulkMeasured(Path exp, Path act, CsvMetrics metrics) {
+                bulks.add(metrics);
+            }
+        };
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("id")
+                .metrics(recorder)
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+        CsvComparator.compare(exp, act, options);
+
+        Assertions.assertEquals(2, comparisons.size());
+        Assertions.assertEquals(1, bulks.size());
+        Assertions.assertEquals(2, bulks.get(0).getComparisons());
+        Assertions.assertEquals(comparisons.get(0).getRows() + comparisons.get(1).getRows(), bulks.get(0).getRows());
+        Assertions.assertEquals(2, bulks.get(0).getPeakIndexSize());
+    }
+
+    @Test
+    void addEachOther() throws InterruptedException {
+        CsvMetrics first = new CsvMetrics();
+        CsvMetrics second = new CsvMetrics();
+        first.addTotal(1);
+        second.addTotal(1);
+
+        Thread forward = new Thread(() -> {
+            for (int i = 0; i < 100000; i++) first.add(second);
+        });
+        Thread backward = new Thread(() -> {
+            for (int i = 0; i < 100000; i++) second.add(first);
+        });
+        forward.setDaemon(true);
+        backward.setDaemon(true);
+        forward.start();
+        backward.start();
+        forward.join(30000);
+        backward.join(30000);
+
+        Assertions.assertFalse(forward.isAlive());
+        Assertions.assertFalse(backward.isAlive());
+    }
+
+    @Test
+    void notMeasuredByDefault() {
+        Assertions.assertSame(CsvComparisonMetrics.noop(), CsvComparisonOptions.defaults().metrics());
+    }
+}
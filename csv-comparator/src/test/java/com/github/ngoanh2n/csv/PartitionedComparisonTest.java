@@ -0,0 +1,36 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+/**
+ * @author ngoanh2n
+ */
+public class PartitionedComparisonTest {
+    @Test
+    void sameAsHashComparison() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+        CsvComparisonOptions hashOptions = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .build();
+        CsvComparisonOptions partitionedOptions = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .partitions(4)
+                .build();
+        CsvComparisonResult hashResult = CsvComparator.compare(exp, act, hashOptions);
+        CsvComparisonResult partitionedResult = CsvComparator.compare(exp, act, partitionedOptions);
+
+        Assertions.assertEquals(hashResult.getKeptCount(), partitionedResult.getKeptCount());
+        Assertions.assertEquals(hashResult.getDeletedCount(), partitionedResult.getDeletedCount());
+        Assertions.assertEquals(hashResult.getInsertedCount(), partitionedResult.getInsertedCount());
+        Assertions.assertEquals(hashResult.getModifiedCount(), partitionedResult.getModifiedCount());
+        Assertions.assertEquals(hashResult.getModifiedRows().size(), partitionedResult.getModifiedRows().size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.ngoanh2n.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * @author ngoanh2n
+ */
+public class ProgressTest {
+    @TempDir
+    Path dir;
+
+    private static final int ROWS = 40000;
+
+    @Test
+    void reportProgress() throws IOException {
+        File exp = write(dir.resolve("exp.csv"), 0);
+        File act = write(dir.resolve("act.csv"), 1);
+
+        List<CsvComparisonOptions.Builder> builders = new ArrayList<>();
+        builders.add(CsvComparisonOptions.builder());
+        builders.add(CsvComparisonOptions.builder().memoryBudget(1024 * 1024));
+        builders.add(CsvComparisonOptions.builder().partitions(2));
+
+        for (CsvComparisonOptions.Builder builder : builders) {
+            long[] expRows = new long[1];
+            long[] actRows = new long[1];
+            CsvComparisonOptions options = builder
+                    .selectColumnId("id")
+                    .progress((expCSV, actCSV, phase, rows, bytes) -> {
+                        Assertions.assertTrue(bytes > 0);
+                        (phase == CsvComparisonProgress.Phase.EXP ? expRows : actRows)[0] = rows;
+                    })
+                    .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                    .build();
+            CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+            Assertions.assertEquals(ROWS, result.getModifiedCount());
+            Assertions.assertTrue(expRows[0] >= ROWS);
+            Assertions.assertTrue(actRows[0] >= ROWS);
+        }
+    }
+
+    @Test
+    void cancelComparison() throws IOException {
+        File exp = write(dir.resolve("exp.csv"), 0);
+        File act = write(dir.resolve("act.csv"), 1);
+
+        List<CsvComparisonOptions.Builder> builders = new ArrayList<>();
+        builders.add(CsvComparisonOptions.builder());
+        builders.add(CsvComparisonOptions.builder().memoryBudget(1024 * 1024));
+        builders.add(CsvComparisonOptions.builder().partitions(2));
+
+        for (CsvComparisonOptions.Builder builder : builders) {
+            CsvCancellation cancellation = new CsvCancellation();
+            CsvComparisonOptions options = builder
+                    .selectColumnId("id")
+                    .progress((expCSV, actCSV, phase, rows, bytes) -> cancellation.cancel())
+                    .cancellation(cancellation)
+                    .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                    .build();
+
+            Assertions.assertThrows(CancellationException.class, () -> CsvComparator.compare(exp, act, options));
+            Assertions.assertTrue(cancellation.isCancelled());
+        }
+    }
+
+    @Test
+    void cancelBulkComparison() throws IOException {
+        Path exp = dir.resolve("exp");
+        Path act = dir.resolve("act");
+        CsvFiles.write(exp.resolve("a.csv"), "id,value", "1,a");
+        CsvFiles.write(act.resolve("a.csv"), "id,value", "1,a");
+
+        CsvCancellation cancellation = new CsvCancellation();
+        cancellation.cancel();
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("id")
+                .cancellation(cancellation)
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+
+        Assertions.assertThrows(CancellationException.class, () -> CsvComparator.compare(exp, act, options));
+    }
+
+    private static File write(Path file, int version) throws IOException {
+        List<String> lines = new ArrayList<>(ROWS + 1);
+        lines.add("id,value");
+
+        for (int id = 0; id < ROWS; id++) {
+            lines.add(id + ",value" + (id + version));
+        }
+        return CsvFiles.write(file, lines);
+    }
+}
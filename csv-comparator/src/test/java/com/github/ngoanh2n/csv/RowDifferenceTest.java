@@ -92,4 +92,96 @@ public class RowDifferenceTest {
         Assertions.assertEquals(2, result.getKeptRows().size());
         Assertions.assertEquals(1, result.getModifiedRows().size());
     }
+
+    @Test
+    @Order(5)
+    void countsOnly() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/modification.csv");
+
+        CsvComparisonResultOptions resultOptions = CsvComparisonResultOptions
+                .builder()
+                .retention(CsvComparisonResultOptions.Retention.COUNTS)
+                .build();
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumns("email", "firstname", "lastname")
+                .selectColumnId("email")
+                .resultOptions(resultOptions)
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertTrue(result.hasModification());
+        Assertions.assertEquals(2, result.getKeptCount());
+        Assertions.assertEquals(1, result.getModifiedCount());
+        Assertions.assertEquals(0, result.getKeptRows().size());
+        Assertions.assertEquals(0, result.getModifiedRows().size());
+    }
+
+    @Test
+    @Order(6)
+    void sampleRows() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/insertion.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/insertion.csv");
+
+        CsvComparisonResultOptions resultOptions = CsvComparisonResultOptions
+                .builder()
+                .retention(CsvComparisonResultOptions.Retention.SAMPLE)
+                .sampleSize(1)
+                .build();
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumns(1, 2, 3)
+                .selectColumnId(1)
+                .resultOptions(resultOptions)
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertTrue(result.hasInsertion());
+        Assertions.assertEquals(2, result.getInsertedCount());
+        Assertions.assertEquals(1, result.getInsertedRows().size());
+    }
+
+    @Test
+    @Order(7)
+    void byteIdentical() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+
+        CsvComparisonResultOptions resultOptions = CsvComparisonResultOptions
+                .builder()
+                .writeOutputs(false)
+                .retention(CsvComparisonResultOptions.Retention.COUNTS)
+                .build();
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .byteCheck()
+                .resultOptions(resultOptions)
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertFalse(result.hasDiff());
+        Assertions.assertEquals(3, result.getKeptCount());
+        Assertions.assertEquals(0, result.getKeptRows().size());
+    }
+
+    @Test
+    @Order(8)
+    void missingTrailingCell() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/trailing_cell.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/trailing_cell.csv");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("id")
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        // Row without the last cell isn't the same as row of a null last cell
+        Assertions.assertTrue(result.hasModification());
+        Assertions.assertEquals(1, result.getModifiedCount());
+        Assertions.assertEquals(1, result.getKeptCount());
+    }
 }
@@ -0,0 +1,104 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import com.univocity.parsers.csv.CsvParserSettings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author ngoanh2n
+ */
+public class SharedOptionsTest {
+    private final File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+    private final File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+    @Test
+    void concurrentComparisons() throws InterruptedException, ExecutionException {
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumns("email", "firstname", "lastname")
+                .selectColumnId("email")
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+        CsvComparisonResult expected = CsvComparator.compare(exp, act, options);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<CsvComparisonResult>> futures = new ArrayList<>();
+            for (int index = 0; index < 16; index++) {
+                futures.add(executor.submit(() -> CsvComparator.compare(exp, act, options)));
+            }
+            for (Future<CsvComparisonResult> future : futures) {
+                CsvComparisonResult result = future.get();
+                Assertions.assertEquals(expected.getKeptCount(), result.getKeptCount());
+                Assertions.assertEquals(expected.getDeletedCount(), result.getDeletedCount());
+                Assertions.assertEquals(expected.getInsertedCount(), result.getInsertedCount());
+                Assertions.assertEquals(expected.getModifiedCount(), result.getModifiedCount());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void frozenAtBuild() {
+        CsvComparisonOptions.Builder builder = CsvComparisonOptions
+                .builder()
+                .selectColumns("email", "firstname")
+                .selectColumnId("email");
+        CsvComparisonOptions options = builder.build();
+        builder.withoutHeaders().selectColumns(0, 1).selectColumnId(1);
+        options.parserSettings().setHeaderExtractionEnabled(false);
+
+        Assertions.assertEquals("email", options.columnId());
+        Assertions.assertEquals(List.of("email", "firstname"), options.selectedColumns());
+        Assertions.assertTrue(options.parserSettings().isHeaderExtractionEnabled());
+        Assertions.assertDoesNotThrow(() -> CsvComparator.compare(exp, act, options));
+    }
+
+    @Test
+    void handWrittenOptions() {
+        CsvComparisonOptions built = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .resultOptions(CsvComparisonResultOptions.builder().writeOutputs(false).build())
+                .build();
+        CsvComparisonOptions options = new CsvComparisonOptions() {
+            @Override
+            public Charset charset() {
+                return null;
+            }
+
+            @Override
+            public Object columnId() {
+                return "email";
+            }
+
+            @Override
+            public CsvParserSettings parserSettings() {
+                return built.parserSettings();
+            }
+
+            @Override
+            public CsvComparisonResultOptions resultOptions() {
+                return built.resultOptions();
+            }
+        };
+        CsvComparisonResult expected = CsvComparator.compare(exp, act, built);
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertEquals(expected.getKeptCount(), result.getKeptCount());
+        Assertions.assertEquals(expected.getModifiedCount(), result.getModifiedCount());
+        Assertions.assertEquals(1, options.parallelism());
+        Assertions.assertSame(CsvComparisonMetrics.noop(), options.metrics());
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import com.github.ngoanh2n.RuntimeError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author ngoanh2n
+ */
+public class SnapshotComparisonTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameAsHashComparison() throws IOException {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+        File file = dir.resolve("combination2.snapshot").toFile();
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .build();
+        CsvSnapshot snapshot = CsvSnapshot.compile(exp, file, options);
+        CsvComparisonResult hashResult = CsvComparator.compare(exp, act, options);
+
+        for (CsvSnapshot expSnapshot : new CsvSnapshot[]{snapshot, CsvSnapshot.load(file)}) {
+            CsvComparisonResult snapshotResult = CsvComparator.compare(expSnapshot, act, options);
+
+            Assertions.assertEquals(exp.getAbsoluteFile(), expSnapshot.getSource());
+            Assertions.assertArrayEquals(new String[]{"email", "firstname", "lastname", "age"}, expSnapshot.getHeaders());
+            Assertions.assertEquals(hashResult.getKeptRows().size(), snapshotResult.getKeptRows().size());
+            Assertions.assertEquals(hashResult.getDeletedRows().size(), snapshotResult.getDeletedRows().size());
+            Assertions.assertEquals(hashResult.getInsertedRows().size(), snapshotResult.getInsertedRows().size());
+            Assertions.assertEquals(hashResult.getModifiedRows().size(), snapshotResult.getModifiedRows().size());
+        }
+    }
+
+    @Test
+    void staleSnapshot() throws IOException {
+        File source = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        Path exp = dir.resolve("exp.csv");
+        Files.copy(source.toPath(), exp);
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .build();
+        CsvSnapshot snapshot = CsvSnapshot.compile(exp.toFile(), dir.resolve("exp.snapshot").toFile(), options);
+        Assertions.assertTrue(snapshot.isValid(options));
+
+        Files.writeString(exp, "\nuser99@gmail.com,\"User 99\",Nguyen,99\n", StandardOpenOption.APPEND);
+        Assertions.assertFalse(snapshot.isValid(options));
+        Assertions.assertThrows(RuntimeError.class, () -> CsvComparator.compare(snapshot, source, options));
+
+        CsvSnapshot recompiled = CsvSnapshot.compile(exp.toFile(), snapshot.getFile(), options);
+        CsvComparisonResult result = CsvComparator.compare(recompiled, source, options);
+        Assertions.assertEquals(1, result.getDeletedRows().size());
+    }
+}
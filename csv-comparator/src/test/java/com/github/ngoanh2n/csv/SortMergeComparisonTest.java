@@ -0,0 +1,112 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import com.github.ngoanh2n.RuntimeError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author ngoanh2n
+ */
+public class SortMergeComparisonTest {
+    @Test
+    void spillEveryRow() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/modification.csv");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumns("email", "firstname", "lastname")
+                .selectColumnId("email")
+                .memoryBudget(1)
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertTrue(result.hasDiff());
+        Assertions.assertFalse(result.hasDeletion());
+        Assertions.assertFalse(result.hasInsertion());
+        Assertions.assertTrue(result.hasModification());
+        Assertions.assertEquals(2, result.getKeptRows().size());
+        Assertions.assertEquals(1, result.getModifiedRows().size());
+    }
+
+    @Test
+    void deleteMergedRuns() {
+        List<String[]> rows = new ArrayList<>();
+        for (int id = 200; id > 0; id--) {
+            rows.add(new String[]{String.format("%03d", id)});
+        }
+
+        try (CsvSorter sorter = new CsvSorter(new CsvKey(0), 1, Comparator.naturalOrder())) {
+            Iterator<String[]> sorted = sorter.sort(rows.iterator());
+            // 200 runs are merged into 4 runs by the first pass
+            Assertions.assertEquals(4, sorter.getRunFiles());
+
+            for (int id = 1; id <= 200; id++) {
+                Assertions.assertEquals(String.format("%03d", id), sorted.next()[0]);
+            }
+            Assertions.assertFalse(sorted.hasNext());
+        }
+    }
+
+    @Test
+    void sameAsHashComparison() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+        CsvComparisonOptions hashOptions = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .build();
+        CsvComparisonOptions mergeOptions = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .memoryBudget(256)
+                .build();
+        CsvComparisonResult hashResult = CsvComparator.compare(exp, act, hashOptions);
+        CsvComparisonResult mergeResult = CsvComparator.compare(exp, act, mergeOptions);
+
+        Assertions.assertEquals(hashResult.getKeptRows().size(), mergeResult.getKeptRows().size());
+        Assertions.assertEquals(hashResult.getDeletedRows().size(), mergeResult.getDeletedRows().size());
+        Assertions.assertEquals(hashResult.getInsertedRows().size(), mergeResult.getInsertedRows().size());
+        Assertions.assertEquals(hashResult.getModifiedRows().size(), mergeResult.getModifiedRows().size());
+    }
+
+    @Test
+    void presorted() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .presorted()
+                .build();
+        CsvComparisonResult result = CsvComparator.compare(exp, act, options);
+
+        Assertions.assertEquals(1, result.getKeptRows().size());
+        Assertions.assertEquals(1, result.getDeletedRows().size());
+        Assertions.assertEquals(1, result.getInsertedRows().size());
+        Assertions.assertEquals(1, result.getModifiedRows().size());
+    }
+
+    @Test
+    void presortedOutOfOrder() {
+        File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/combination2.csv");
+        File act = Resources.getFile("com/github/ngoanh2n/csv/act/combination2.csv");
+
+        CsvComparisonOptions options = CsvComparisonOptions
+                .builder()
+                .selectColumnId("email")
+                .presorted()
+                .keyOrder(Comparator.reverseOrder())
+                .build();
+        Assertions.assertThrows(RuntimeError.class, () -> CsvComparator.compare(exp, act, options));
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.ngoanh2n.csv;
+
+import com.github.ngoanh2n.Resources;
+import com.github.ngoanh2n.RuntimeError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * @author ngoanh2n
+ */
+public class SourceComparisonTest {
+    private final File exp = Resources.getFile("com/github/ngoanh2n/csv/exp/modification.csv");
+    private final File act = Resources.getFile("com/github/ngoanh2n/csv/act/modification.csv");
+    private final CsvComparisonOptions options = CsvComparisonOptions
+            .builder()
+            .selectColumnId("email")
+            .build();
+
+    @Test
+    void sameAsFileComparison() throws IOException {
+        String expText = Files.readString(exp.toPath());
+        byte[] actBytes = Files.readAllBytes(act.toPath());
+        CsvComparisonResult fileResult = CsvComparator.compare(exp, act, options);
+
+        CsvComparisonResult readerResult = CsvComparator.compare(new StringReader(expText), new StringReader(new String(actBytes, StandardCharsets.UTF_8)), options);
+        CsvComparisonResult streamResult = CsvComparator.compare(new ByteArrayInputStream(expText.getBytes(StandardCharsets.UTF_8)), new ByteArrayInputStream(actBytes), options);
+        CsvComparisonResult channelResult = CsvComparator.compare(
+                CsvComparisonSource.ofChannel("exp", () -> Channels.newChannel(new ByteArrayInputStream(expText.getBytes(StandardCharsets.UTF_8)))),
+                CsvComparisonSource.of("act", Channels.newChannel(new ByteArrayInputStream(actBytes))),
+                options);
+
+        for (CsvComparisonResult result : new CsvComparisonResult[]{readerResult, streamResult, channelResult}) {
+            Assertions.assertEquals(fileResult.getKeptCount(), result.getKeptCount());
+            Assertions.assertEquals(fileResult.getModifiedCount(), result.getModifiedCount());
+            Assertions.assertArrayEquals(fileResult.getModifiedRows().get(0), result.getModifiedRows().get(0));
+        }
+    }
+
+    @Test
+    void readOnlyOnce() throws IOException {
+        CsvComparisonSource expSource = CsvComparisonSource.of("exp", new StringReader(Files.readString(exp.toPath())));
+        CsvComparisonSource actSource = CsvComparisonSource.ofInputStream("act", () -> newInputStream(act));
+
+        Assertions.assertFalse(expSource.isRepeatable());
+        Assertions.assertTrue(actSource.isRepeatable());
+        Assertions.assertNull(expSource.getFile());
+        Assertions.assertTrue(CsvComparator.compare(expSource, actSource, options).hasModification());
+        Assertions.assertThrows(RuntimeError.class, () -> CsvComparator.compare(expSource, actSource, options));
+    }
+
+    private static ByteArrayInputStream newInputStream(File file) {
+        try {
+            return new ByteArrayInputStream(Files.readAllBytes(file.toPath()));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}